@@ -204,10 +204,12 @@ public class AttributesPanel extends EditorPane.SupportPane {
     public void resetUI()
     {
         // Get selected inspector and reset
+        long startTime = System.nanoTime();
         Tab selTab = _tabView.getSelItem();
         ViewOwner inspector = selTab != null ? selTab.getContentOwner() : null;
         if (inspector != null)
             inspector.resetLater();
+        getEditorPane().getResetScheduler().recordReset("AttributesPanel", startTime);
     }
 
     /**
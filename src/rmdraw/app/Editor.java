@@ -51,6 +51,18 @@ public class Editor extends Viewer {
     // The EditorPane - I wish we didn't need this
     private EditorPane _ep;
 
+    // The index of selected view handles for fast handle hit testing
+    private HandleIndex _handleIndex = new HandleIndex(this);
+
+    // The current selection as undo selection (shared by undo sets until selection changes)
+    private List<SGView> _undoSel;
+
+    // The change journal for document, if journal mode
+    private EditorJournal _journal;
+
+    // The user changes in current deep change batch, with whether undoer was enabled when batched
+    private Map<PropChange,Boolean> _batchUserChanges = new IdentityHashMap<>();
+
     // Constants for PropertyChanges
     public static final String CurrentTool_Prop = "CurrentTool";
     public static final String SelViews_Prop = "SelViews";
@@ -110,7 +122,7 @@ public class Editor extends Viewer {
 
         // Set new undoer
         if (isEditing())
-            getSceneGraph().setUndoer(new Undoer());
+            getSceneGraph().setUndoer(new EditorUndoer());
     }
 
     /**
@@ -194,6 +206,8 @@ public class Editor extends Viewer {
 
         // Add views to selected list
         _selViews.addAll(theViews);
+        _handleIndex.invalidate();
+        _undoSel = null;
 
         // Fire PropertyChange
         firePropChange(SelViews_Prop, null, theViews);
@@ -252,6 +266,8 @@ public class Editor extends Viewer {
         // Add super selected view (recursively adds parents if missing)
         if (view != getSuperSelView())
             addSuperSelView(view);
+        _handleIndex.invalidate();
+        _undoSel = null;
 
         // Fire PropertyChange and repaint
         firePropChange(SuperSelView_Prop, null, aView);
@@ -408,6 +424,23 @@ public class Editor extends Viewer {
         return bnds;
     }
 
+    /**
+     * Override to account for selected views potentially having handles.
+     */
+    public void sceneNeedsRepaint(SGView aView, Rect aRect)
+    {
+        Rect bnds = aRect.getInsetRect(-4);
+        super.sceneNeedsRepaint(aView, bnds);
+    }
+
+    /**
+     * Returns the index of selected view handles used for handle hit testing.
+     */
+    public HandleIndex getHandleIndex()
+    {
+        return _handleIndex;
+    }
+
     /**
      * Returns first view hit by point given in View coords.
      */
@@ -773,6 +806,7 @@ public class Editor extends Viewer {
         if (aClass == SGView.class) return new Tool();
         if (aClass == SGSpringsView.class) return new SGSpringsTool();
         if (aClass == SGText.class) return new TextTool();
+        if (aClass == SGSymbolView.class) return new Tool();
         if (aClass == SceneGraph.class) return new Tool();
         System.out.println("RMTool.createTool: " + aClass.getName());
         return new Tool();
@@ -1028,23 +1062,86 @@ public class Editor extends Viewer {
         return true;
     }
 
+    /**
+     * SceneGraph.Client method: Override to invalidate handle index when root view changes (zoom, bounds).
+     */
+    @Override
+    public void sceneViewPropChanged(PropChange aPC)
+    {
+        super.sceneViewPropChanged(aPC);
+        _handleIndex.invalidate();
+
+        // Symbols are document changes (not deep changes from views), so add journal and undo change here
+        if (aPC.getPropName() == SGDoc.Symbols_Prop) {
+            addJournalChange(aPC);
+            addUndoChange(aPC);
+            resetEditorPaneLater();
+        }
+    }
+
     /**
      * SceneGraph.Client method: Called when SceneGraph View has prop change.
      */
     @Override
     public void sceneViewPropChangedDeep(PropChange aPC)
     {
+        // Any view change can move handles
+        _handleIndex.invalidate();
+
         // If deep change for EditorTextEditor, just return since it registers Undo itself (with better coalesce)
         //if(getTextEditor()!=null && getTextEditor().getTextShape()==aShape &&
         //    (anEvent.getSource() instanceof RichText || anEvent.getSource() instanceof RichTextRun)) return;
 
-        // Add undo change
+        // Add journal change and undo change
+        addJournalChange(aPC);
         addUndoChange(aPC);
 
         // Reset EditorPane UI
         resetEditorPaneLater();
     }
 
+    /**
+     * SceneGraph.Client method: Called when SceneGraph Views have prop changes in a deep change batch.
+     */
+    @Override
+    public void sceneViewPropChangesDeep(List<PropChange> theChanges)
+    {
+        // Any view change can move handles
+        _handleIndex.invalidate();
+
+        // Add undo changes for user changes (in order, with undoer enabled state from when change was batched)
+        Undoer undoer = getUndoer();
+        for (PropChange pc : theChanges) {
+            Boolean enabled = _batchUserChanges.remove(pc);
+            if (enabled == null) continue;
+            if (enabled && undoer != null && !undoer.isEnabled()) {
+                undoer.enable();
+                addUndoChange(pc);
+                undoer.disable();
+            }
+            else addUndoChange(pc);
+        }
+        _batchUserChanges.clear();
+
+        // Reset EditorPane UI
+        resetEditorPaneLater();
+    }
+
+    /**
+     * SceneGraph.Client method: Called when SceneGraph buffers View prop change in a deep change batch.
+     */
+    @Override
+    public void sceneViewPropChangeBatched(PropChange aPC)
+    {
+        // If not user change (layout, lazy loading), just return, since batch may end after undoer is re-enabled
+        if (!isUserChange()) return;
+
+        // Record whether undoer is enabled for change, and add journal change now, while source can still be located
+        Undoer undoer = getUndoer();
+        _batchUserChanges.put(aPC, undoer != null && undoer.isEnabled());
+        addJournalChange(aPC);
+    }
+
     /**
      * SceneGraph.Client method: Returns whether SceneGraph is being edited.
      */
@@ -1077,6 +1174,41 @@ public class Editor extends Viewer {
         return getSuperSelView() == aView;
     }
 
+    /**
+     * Returns the change journal for document, if journal mode.
+     */
+    public EditorJournal getJournal()
+    {
+        return _journal;
+    }
+
+    /**
+     * Sets the change journal for document.
+     */
+    public void setJournal(EditorJournal aJournal)
+    {
+        _journal = aJournal;
+    }
+
+    /**
+     * Adds a change to journal, if journal mode and change is user change.
+     */
+    protected void addJournalChange(PropChange aPC)
+    {
+        if (_journal != null && isUserChange())
+            _journal.addChange(aPC);
+    }
+
+    /**
+     * Returns whether current changes are user changes (undoer is enabled or undoing), not layout or lazy loading.
+     */
+    private boolean isUserChange()
+    {
+        Undoer undoer = getUndoer();
+        return undoer == null || undoer.isEnabled() ||
+            undoer instanceof EditorUndoer && ((EditorUndoer) undoer).isUndoRedoing();
+    }
+
     /**
      * Property change.
      */
@@ -1100,9 +1232,12 @@ public class Editor extends Viewer {
             if (pname == "Version") return;
         }
 
-        // If no changes yet, set selected objects
-        if (undoer.getActiveUndoSet().getChangeCount() == 0)
-            undoer.setUndoSelection(new ArrayList(getSelOrSuperSelViews()));
+        // If no changes yet, set selected objects (shared snapshot until selection changes)
+        if (undoer.getActiveUndoSet().getChangeCount() == 0) {
+            if (_undoSel == null)
+                _undoSel = Collections.unmodifiableList(new ArrayList<>(getSelOrSuperSelViews()));
+            undoer.setUndoSelection(_undoSel);
+        }
 
         // Add property change
         undoer.addPropChange(aPC);
@@ -1128,6 +1263,10 @@ public class Editor extends Viewer {
         // Save undo changes
         undoer.saveChanges();
 
+        // Keep undo history within memory budget
+        if (undoer instanceof EditorUndoer)
+            ((EditorUndoer) undoer).checkByteBudget();
+
         // Reset EditorPane
         resetEditorPaneLater();
     }
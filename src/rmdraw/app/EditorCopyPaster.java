@@ -8,10 +8,17 @@ import snap.util.ListUtils;
 import snap.util.XMLElement;
 import snap.view.Clipboard;
 import snap.view.ClipboardData;
+import snap.view.ViewEnv;
 import snap.view.ViewUtils;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * A CopyPaster implementation for Editor.
@@ -30,6 +37,25 @@ public class EditorCopyPaster implements CopyPaster {
     // The MIME type for Draw archival format
     public static final String DRAW_XML_FORMAT = "snapdraw/xml";
 
+    // The MIME type for the id of a clipboard payload copied in this process
+    public static final String DRAW_PAYLOAD_FORMAT = "snapdraw/payload";
+
+    // The max number of pixels in clipboard image (larger images are rendered at reduced scale)
+    public static int CLIP_IMAGE_MAX_PIXELS = 4096 * 4096;
+
+    // The last clipboard payload copied in this process
+    private static volatile ClipPayload _payload;
+
+    // The executor that exports payloads (one daemon thread, so exports run one at a time in copy order)
+    private static final ExecutorService _exportExecutor = Executors.newSingleThreadExecutor(run -> {
+        Thread thread = new Thread(run, "EditorCopyPaster.Export");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // The export of last payload (cancelled if still queued when next payload is copied)
+    private static Future<?> _exportFuture;
+
     /**
      * Creates EditorCopyPaster for given editor.
      */
@@ -68,21 +94,15 @@ public class EditorCopyPaster implements CopyPaster {
             // Get System clipboard
             Clipboard cb = Clipboard.getCleared();
 
-            // Get xml for selected views and add DRAW_XML to clipboard
+            // Create payload with copies of selected views and add payload id to clipboard (for in-process paste)
             List<SGView> views = _editor.getSelOrSuperSelViews();
-            XMLElement xml = new RMArchiver().writeToXML(views);
-            String xmlStr = xml.getString();
-            cb.addData(DRAW_XML_FORMAT, xmlStr);
-
-            // If only one view, add as image
+            // If only one view, payload gets image too
             SGView view = views.size() == 1 ? _editor.getSelView() : null;
-            if (view != null) {
-                Image image = SGViewUtils.createImage(view, null);
-                cb.addData(image);
-            }
+            ClipPayload payload = _payload = new ClipPayload(views, view != null);
+            cb.addData(DRAW_PAYLOAD_FORMAT, payload._id);
 
-            // Add XML as plain string, too (probably stupid)
-            cb.addData(xmlStr);
+            // Add DRAW_XML (and XML as plain string) and image for other processes once payload is exported
+            payload.addExportDataWhenReady();
 
             // Reset Editor.LastCopyShape/LastPasteShape
             _lastCopyShape = _editor.getSelView(0);
@@ -112,7 +132,7 @@ public class EditorCopyPaster implements CopyPaster {
         SGView pastedShape = null;
 
         // If PasteBoard has ReportMill Data, paste it
-        if (aCB.hasData(DRAW_XML_FORMAT)) {
+        if (aCB.hasData(DRAW_XML_FORMAT) || getPayload(aCB) != null) {
 
             // Unarchive shapes from clipboard bytes
             Object object = getShapesFromClipboard(aCB);
@@ -227,9 +247,9 @@ public class EditorCopyPaster implements CopyPaster {
         // Set undo title
         _editor.undoerSetUndoTitle(_editor.getSelViewCount() > 1 ? "Delete Shapes" : "Delete Shape");
 
-        // Remove all shapes from their parent
+        // Remove all shapes from their parent (as a single change)
+        parent.removeChildren(Arrays.asList(shapes));
         for (SGView shape : shapes) {
-            parent.removeChild(shape);
             if (_lastPasteShape == shape) _lastPasteShape = null;
             if (_lastCopyShape == shape) _lastCopyShape = null;
         }
@@ -254,6 +274,11 @@ public class EditorCopyPaster implements CopyPaster {
         // If no contents, use system clipboard
         Clipboard cboard = aCB != null ? aCB : Clipboard.get();
 
+        // If clipboard has payload copied in this process, just return new copies of its views
+        ClipPayload payload = getPayload(cboard);
+        if (payload != null)
+            return payload.getViewCopies();
+
         // If no RMData, just return
         if (!cboard.hasData(DRAW_XML_FORMAT))
             return null;
@@ -274,6 +299,18 @@ public class EditorCopyPaster implements CopyPaster {
         return obj;
     }
 
+    /**
+     * Returns the payload copied in this process, if given clipboard still holds it.
+     */
+    private static ClipPayload getPayload(Clipboard aCB)
+    {
+        ClipPayload payload = _payload;
+        if (payload == null || !aCB.hasData(DRAW_PAYLOAD_FORMAT)) return null;
+        byte bytes[] = aCB.getDataBytes(DRAW_PAYLOAD_FORMAT);
+        String id = bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+        return payload._id.equals(id) ? payload : null;
+    }
+
     /**
      * Adds shapes as children to given shape.
      */
@@ -302,24 +339,27 @@ public class EditorCopyPaster implements CopyPaster {
             }
         }
 
-        // Get each individual shape and add it to the superSelectedShape
-        for (SGView shape : theShapes) {
-
-            // Add current loop shape to given parent shape
-            aShape.addChild(shape);
-
-            // Smart paste
-            if (withCorrection) {
-                Rect parentShapeRect = aShape.getBoundsLocal();
-                shape.setXY(shape.x() + dx, shape.y() + dy);
-                shape.setRoll(shape.getRoll() + dr);
-                Rect rect = shape.getFrame();
-                rect.width = Math.max(1, rect.width);
-                rect.height = Math.max(1, rect.height);
-                if (!parentShapeRect.intersectsRect(rect))
-                    shape.setXY(0, 0);
+        // Add shapes to the superSelectedShape (as one deep change batch)
+        SceneGraph scene = _editor.getSceneGraph();
+        scene.beginDeepChangeBatch();
+        try {
+            aShape.addChildren(theShapes, aShape.getChildCount());
+            for (SGView shape : theShapes) {
+
+                // Smart paste
+                if (withCorrection) {
+                    Rect parentShapeRect = aShape.getBoundsLocal();
+                    shape.setXY(shape.x() + dx, shape.y() + dy);
+                    shape.setRoll(shape.getRoll() + dr);
+                    Rect rect = shape.getFrame();
+                    rect.width = Math.max(1, rect.width);
+                    rect.height = Math.max(1, rect.height);
+                    if (!parentShapeRect.intersectsRect(rect))
+                        shape.setXY(0, 0);
+                }
             }
         }
+        finally { scene.endDeepChangeBatch(); }
 
         // Select shapes
         _editor.setSelViews(theShapes);
@@ -334,4 +374,144 @@ public class EditorCopyPaster implements CopyPaster {
         String str = aCB.getString();
         return str != null ? new SGText(str) : null;
     }
+
+    /**
+     * A class to hold copies of the views copied to the clipboard, so pastes in this process can skip archival.
+     */
+    private static class ClipPayload {
+
+        // The payload id
+        String _id = UUID.randomUUID().toString();
+
+        // The copies of copied views (only used on UI thread)
+        List<SGView> _views = new ArrayList<>();
+
+        // The separate copies of copied views for export thread (cleared when export is done)
+        List<SGView> _exportViews = new ArrayList<>();
+
+        // The export copy of view to render clipboard image for (or null)
+        SGView _imageView;
+
+        // The clipboard image, if rendered when payload was created
+        Image _image;
+
+        /**
+         * Creates ClipPayload for given views (and with image, if requested).
+         */
+        ClipPayload(List<SGView> theViews, boolean withImage)
+        {
+            // Create copies for paste and separate copies for export (export thread lays out and renders its copies)
+            for (SGView view : theViews) {
+                _views.add(view.cloneDeep());
+                _exportViews.add(view.cloneDeep());
+            }
+
+            // If image requested, use first export copy, resolving state it gets from document (copies have no parent)
+            if (withImage) {
+                _imageView = _exportViews.get(0);
+                if (!resolveDocState(theViews.get(0), _imageView))
+                    _image = createImage(_imageView);
+            }
+        }
+
+        /**
+         * Returns new copies of payload views (for paste).
+         */
+        List<SGView> getViewCopies()
+        {
+            List<SGView> copies = new ArrayList<>(_views.size());
+            for (SGView view : _views)
+                copies.add(view.cloneDeep());
+            return copies;
+        }
+
+        /**
+         * Archives export copies and renders image on a background thread and adds them to clipboard, if payload is
+         * still current.
+         */
+        void addExportDataWhenReady()
+        {
+            // Cancel export of previous payload if it hasn't started
+            if (_exportFuture != null)
+                _exportFuture.cancel(false);
+
+            // Submit export
+            _exportFuture = _exportExecutor.submit(() -> {
+
+                // If payload is no longer current, just return
+                if (_payload != this) return;
+
+                // Archive export copies and add XML
+                XMLElement xml = new RMArchiver().writeToXML(_exportViews);
+                String xmlStr = xml.getString();
+                ViewEnv.getEnv().runLater(() -> addXML(xmlStr));
+
+                // Render image (if requested and not already rendered) and add
+                if (_imageView != null && _payload == this) {
+                    Image image = _image != null ? _image : createImage(_imageView);
+                    ViewEnv.getEnv().runLater(() -> addImage(image));
+                }
+
+                // Release export copies
+                _exportViews = null;
+                _imageView = null;
+            });
+        }
+
+        /**
+         * Adds given XML to clipboard, if it still holds this payload.
+         */
+        private void addXML(String xmlStr)
+        {
+            Clipboard cb = Clipboard.get();
+            if (getPayload(cb) != this) return;
+            cb.addData(DRAW_XML_FORMAT, xmlStr);
+            cb.addData(xmlStr); // Add XML as plain string, too (probably stupid)
+        }
+
+        /**
+         * Adds given image to clipboard, if it still holds this payload.
+         */
+        private void addImage(Image anImage)
+        {
+            Clipboard cb = Clipboard.get();
+            if (getPayload(cb) != this) return;
+            cb.addData(anImage);
+        }
+
+        /**
+         * Resolves state that given copy gets from document through original view: Symbol views get a copy of their
+         * symbol. Returns false if copy has state that can't be resolved and must be rendered now (linked text).
+         */
+        private static boolean resolveDocState(SGView anOrig, SGView aCopy)
+        {
+            // Handle symbol view: Set copy of symbol (so copy paints it without document)
+            if (aCopy instanceof SGSymbolView) {
+                SGSymbol symbol = ((SGSymbolView) anOrig).getSymbol();
+                if (symbol != null)
+                    ((SGSymbolView) aCopy).setSymbol(symbol.clone());
+            }
+
+            // Handle linked text: It paints text of view in document
+            if (aCopy instanceof SGLinkedText)
+                return false;
+
+            // Resolve children
+            boolean resolved = true;
+            for (int i = 0, iMax = aCopy.getChildCount(); i < iMax; i++)
+                resolved &= resolveDocState(anOrig.getChild(i), aCopy.getChild(i));
+            return resolved;
+        }
+
+        /**
+         * Returns an image for given view, with scale reduced if image would exceed CLIP_IMAGE_MAX_PIXELS.
+         */
+        private static Image createImage(SGView aView)
+        {
+            Rect bounds = aView.getBoundsMarkedDeep();
+            double area = Math.max(Math.ceil(bounds.width) * Math.ceil(bounds.height), 1);
+            double scale = Math.min(2, Math.sqrt(CLIP_IMAGE_MAX_PIXELS / area));
+            return SGViewUtils.createImage(aView, null, scale);
+        }
+    }
 }
@@ -0,0 +1,678 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package rmdraw.app;
+import rmdraw.scene.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+import snap.props.PropChange;
+import snap.util.XMLArchiver;
+
+/**
+ * This class keeps an append-only journal of document changes made since the last save in a sidecar file next to a
+ * local document file, so that a crash loses at most the last record. Every save still writes the full document
+ * (the document file is always authoritative), then resets the journal to the changes made after the save snapshot.
+ *
+ * The journal starts with a header that identifies the document file snapshot it applies to (length and
+ * modification time). Each record is a length, a payload and a CRC32 of the payload. Change records hold the
+ * index path of the changed view, the property name, the index and the new value. A change that can't be encoded
+ * marks the journal as incomplete: An incomplete record is written and the journal stops recording until the next
+ * save, so recovery can tell the user that changes after the recovered ones were lost.
+ * A journal that doesn't match its document file is never discarded silently: It is moved aside (see
+ * getStaleFile()) so the owner can be told.
+ */
+public class EditorJournal {
+
+    // The document
+    private SGDoc _doc;
+
+    // The document file and journal file
+    private File _docFile, _file;
+
+    // The journal file (open for append)
+    private RandomAccessFile _raf;
+
+    // The number of change records in journal
+    private int _changeCount;
+
+    // Whether a change couldn't be journaled, so journal can't recover changes until next save
+    private boolean _incomplete;
+
+    // Whether journal was moved aside on open because it didn't match document file
+    private boolean _stale;
+
+    // Whether journal read on open was incomplete (changes after its change records were lost)
+    private boolean _recoveryIncomplete;
+
+    // The header magic number ("RMJL") and version
+    private static final int MAGIC = 0x524D4A4C, VERSION = 2;
+
+    // The header size
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8;
+
+    // The record types (type 1 was commit record, only found in version 1 journals)
+    private static final int RECORD_CHANGE = 0, RECORD_INCOMPLETE = 2;
+
+    // The value types
+    private static final int VALUE_NULL = 0, VALUE_STRING = 1, VALUE_INT = 2, VALUE_DOUBLE = 3, VALUE_FLOAT = 4,
+        VALUE_LONG = 5, VALUE_BOOLEAN = 6, VALUE_VIEW = 7, VALUE_CHILDREN_XY = 8, VALUE_SERIAL = 9, VALUE_ARCHIVED = 10,
+        VALUE_CHILDREN = 11;
+
+    // The filter for serialized values read from journal (journal files come from disk, so only value classes of
+    // app, SnapKit and basic java types are allowed, with small graph limits)
+    private static final ObjectInputFilter SERIAL_FILTER = ObjectInputFilter.Config.createFilter(
+        "maxdepth=20;maxrefs=10000;maxbytes=1048576;java.lang.*;java.util.*;snap.**;rmdraw.scene.**;!*");
+
+    // Whether journal mode is enabled for local documents
+    public static boolean JOURNAL_ENABLED = true;
+
+    /**
+     * Creates EditorJournal for given document and document file.
+     */
+    public EditorJournal(SGDoc aDoc, File aDocFile)
+    {
+        _doc = aDoc;
+        _docFile = aDocFile;
+        _file = getJournalFile(aDocFile);
+    }
+
+    /**
+     * Returns the document file.
+     */
+    public File getDocFile()
+    {
+        return _docFile;
+    }
+
+    /**
+     * Returns whether a change couldn't be journaled (journal can't recover changes until next save).
+     */
+    public boolean isIncomplete()
+    {
+        return _incomplete;
+    }
+
+    /**
+     * Marks journal as incomplete (writes incomplete record and stops recording changes until next save).
+     */
+    public void setIncomplete()
+    {
+        if (_incomplete) return;
+        _incomplete = true;
+        writeIncompleteRecord();
+    }
+
+    /**
+     * Returns whether journal read on open was incomplete, so changes made after its change records were lost.
+     */
+    public boolean isRecoveryIncomplete()
+    {
+        return _recoveryIncomplete;
+    }
+
+    /**
+     * Returns the number of change records in journal.
+     */
+    public int getChangeCount()
+    {
+        return _changeCount;
+    }
+
+    /**
+     * Returns whether journal was moved aside on open because it didn't match document file (see getStaleFile()).
+     */
+    public boolean isStale()
+    {
+        return _stale;
+    }
+
+    /**
+     * Returns the file that a journal that doesn't match document file is moved to.
+     */
+    public File getStaleFile()
+    {
+        return new File(_file.getPath() + ".stale");
+    }
+
+    /**
+     * Returns the current journal length (the position to pass to reset() for changes made after a save snapshot).
+     */
+    public long getLength() throws IOException
+    {
+        return _raf != null ? _raf.length() : HEADER_SIZE;
+    }
+
+    /**
+     * Opens journal and returns the change records it holds (changes made after last save, if process didn't exit
+     * cleanly). If journal doesn't match document file (document changed outside editor), journal with changes is
+     * moved to stale file (see isStale()) and a new journal is started.
+     */
+    public List<byte[]> openAndReplay() throws IOException
+    {
+        // If journal doesn't exist, start new one
+        if (!_file.exists()) {
+            reset(HEADER_SIZE, false);
+            return Collections.emptyList();
+        }
+
+        // Open journal (if header doesn't match document file, move it aside and start new one)
+        _raf = new RandomAccessFile(_file, "rw");
+        if (_raf.length() < HEADER_SIZE || _raf.readInt() != MAGIC || _raf.readInt() > VERSION ||
+            _raf.readLong() != _docFile.length() || _raf.readLong() != _docFile.lastModified()) {
+            moveAsideIfNotEmpty();
+            reset(HEADER_SIZE, false);
+            return Collections.emptyList();
+        }
+
+        // Read change records (commit records from version 1 journals are skipped: Those changes were never written
+        // to document file, so they are recovered too)
+        List<byte[]> changes = new ArrayList<>();
+        long pos = HEADER_SIZE;
+        for (byte[] payload = readRecord(); payload != null; payload = readRecord()) {
+            pos = _raf.getFilePointer();
+            if (payload[0] == RECORD_CHANGE)
+                changes.add(payload);
+            else if (payload[0] == RECORD_INCOMPLETE)
+                _recoveryIncomplete = true;
+        }
+
+        // Truncate partial last record (records are kept until changes are recovered or discarded)
+        _raf.setLength(pos);
+        _raf.seek(pos);
+        _changeCount = changes.size();
+        return changes;
+    }
+
+    /**
+     * Recovers given change records (as returned by openAndReplay()): Discards them from journal and applies them as
+     * normal edits (which are journaled again).
+     */
+    public void applyChanges(List<byte[]> theChanges) throws IOException
+    {
+        discardChanges();
+        for (byte[] change : theChanges)
+            applyChange(change);
+    }
+
+    /**
+     * Adds a change record for given change (or marks journal as incomplete if change can't be encoded).
+     */
+    public void addChange(PropChange aPC)
+    {
+        // If journal closed or incomplete, just return
+        if (_raf == null || _incomplete) return;
+
+        // Encode change and write record
+        try {
+            byte[] payload = encodeChange(aPC);
+            if (payload == null) { setIncomplete(); return; }
+            writeRecord(payload);
+            _changeCount++;
+        }
+        catch (IOException e) {
+            System.err.println("EditorJournal.addChange: " + e);
+            setIncomplete();
+        }
+    }
+
+    /**
+     * Resets journal for current document file snapshot (called after full document save), keeping the change records
+     * from given position (changes made after the save snapshot was taken). If journal became incomplete, it stays
+     * incomplete if there were changes since given position.
+     */
+    public void reset(long aPos, boolean isChangedSince) throws IOException
+    {
+        // Get file
+        if (_raf == null)
+            _raf = new RandomAccessFile(_file, "rw");
+
+        // Read records after given position
+        long pos = Math.max(aPos, HEADER_SIZE);
+        byte[] kept = new byte[(int) Math.max(_raf.length() - pos, 0)];
+        if (kept.length > 0) {
+            _raf.seek(pos);
+            _raf.readFully(kept);
+        }
+
+        // Write header for current document file and kept records and truncate
+        _raf.seek(0);
+        _raf.writeInt(MAGIC);
+        _raf.writeInt(VERSION);
+        _raf.writeLong(_docFile.length());
+        _raf.writeLong(_docFile.lastModified());
+        _raf.write(kept);
+        _raf.setLength(_raf.getFilePointer());
+        _raf.getFD().sync();
+
+        // Reset change count and incomplete (if still incomplete, write incomplete record, since it might not be kept)
+        _changeCount = kept.length > 0 ? countRecords(kept) : 0;
+        _incomplete = _incomplete && isChangedSince;
+        if (_incomplete)
+            writeIncompleteRecord();
+    }
+
+    /**
+     * Discards change records (for revert or close without save).
+     */
+    public void discardChanges()
+    {
+        if (_raf == null) return;
+        try {
+            _raf.setLength(HEADER_SIZE);
+            _raf.seek(HEADER_SIZE);
+            _changeCount = 0;
+        }
+        catch (IOException e) { System.err.println("EditorJournal.discardChanges: " + e); }
+    }
+
+    /**
+     * Closes journal file (and deletes it if it has no records).
+     */
+    public void close()
+    {
+        if (_raf == null) return;
+        try {
+            boolean empty = _raf.length() <= HEADER_SIZE;
+            _raf.close();
+            if (empty)
+                _file.delete();
+        }
+        catch (IOException e) { System.err.println("EditorJournal.close: " + e); }
+        _raf = null;
+    }
+
+    /**
+     * Moves journal file to stale file if it has records (so it isn't lost) and reopens journal file.
+     */
+    private void moveAsideIfNotEmpty() throws IOException
+    {
+        boolean empty = _raf.length() <= HEADER_SIZE;
+        _raf.close();
+        _raf = null;
+        if (!empty) {
+            Files.move(_file.toPath(), getStaleFile().toPath(), StandardCopyOption.REPLACE_EXISTING);
+            _stale = true;
+        }
+    }
+
+    /**
+     * Returns the number of change records in given record bytes.
+     */
+    private static int countRecords(byte[] theBytes)
+    {
+        int count = 0;
+        for (int pos = 0; pos + 5 <= theBytes.length; ) {
+            if (theBytes[pos + 4] == RECORD_CHANGE) count++;
+            pos += 4 + (((theBytes[pos] & 0xff) << 24) | ((theBytes[pos + 1] & 0xff) << 16) |
+                ((theBytes[pos + 2] & 0xff) << 8) | (theBytes[pos + 3] & 0xff)) + 4;
+        }
+        return count;
+    }
+
+    /**
+     * Writes an incomplete record at end of journal (if open).
+     */
+    private void writeIncompleteRecord()
+    {
+        if (_raf == null) return;
+        try { writeRecord(new byte[] { RECORD_INCOMPLETE }); }
+        catch (IOException e) { System.err.println("EditorJournal.writeIncompleteRecord: " + e); }
+    }
+
+    /**
+     * Writes a record for given payload at end of journal.
+     */
+    private void writeRecord(byte[] aPayload) throws IOException
+    {
+        // Write length, payload and CRC in one write (so a crash leaves at most a partial last record)
+        CRC32 crc = new CRC32();
+        crc.update(aPayload);
+        ByteArrayOutputStream bout = new ByteArrayOutputStream(aPayload.length + 8);
+        DataOutputStream out = new DataOutputStream(bout);
+        out.writeInt(aPayload.length);
+        out.write(aPayload);
+        out.writeInt((int) crc.getValue());
+        _raf.write(bout.toByteArray());
+    }
+
+    /**
+     * Reads next record payload (or null if at end or at partial or corrupt record).
+     */
+    private byte[] readRecord() throws IOException
+    {
+        // Read length (just return if at end or truncated)
+        long pos = _raf.getFilePointer();
+        if (pos + 4 > _raf.length()) return null;
+        int len = _raf.readInt();
+        if (len <= 0 || pos + 4 + len + 4 > _raf.length()) return null;
+
+        // Read payload and check CRC
+        byte[] payload = new byte[len];
+        _raf.readFully(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return _raf.readInt() == (int) crc.getValue() ? payload : null;
+    }
+
+    /**
+     * Returns the record payload for given change (or null if change can't be encoded).
+     */
+    private byte[] encodeChange(PropChange aPC) throws IOException
+    {
+        // Only plain changes to document views can be encoded
+        if (aPC.getClass() != PropChange.class || !(aPC.getSource() instanceof SGView)) return null;
+        String pname = aPC.getPropName();
+        int index = aPC.getIndex();
+        if (index >= 0 && pname != SGParent.Child_Prop) return null;
+
+        // Get view path (just return if view isn't in document)
+        SGView view = (SGView) aPC.getSource();
+        int[] path = getPath(view);
+        if (path == null) return null;
+
+        // Write type, path, property name and index
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bout);
+        out.writeByte(RECORD_CHANGE);
+        writePath(out, path);
+        out.writeUTF(pname);
+        out.writeInt(index);
+
+        // Write value (for child removal, just write null since child index is enough)
+        Object value = aPC.getNewValue();
+
+        // For children removal, write removed children indexes (as ChildrenAt without children)
+        if (pname == SGParent.Children_Prop && value == null)
+            value = new SGParent.ChildrenAt(null, ((SGParent.ChildrenAt) aPC.getOldValue()).getIndexes());
+
+        // For symbol removal, write removed symbol name
+        else if (pname == SGDoc.Symbols_Prop && value == null)
+            value = ((SGSymbol) aPC.getOldValue()).getName();
+
+        // For child order, write the old index of each child in new order
+        else if (pname == SGParent.ChildOrder_Prop)
+            value = getChildOrderIndexes((SGView[]) aPC.getOldValue(), (SGView[]) value);
+        if (!writeValue(out, value, (SGParent) (view instanceof SGParent ? view : null)))
+            return null;
+        out.close();
+        return bout.toByteArray();
+    }
+
+    /**
+     * Applies the change for given record payload.
+     */
+    private void applyChange(byte[] aPayload) throws IOException
+    {
+        // Read path, property name, index and value
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(aPayload, 1, aPayload.length - 1));
+        SGView view = getView(readPath(in));
+        String pname = in.readUTF().intern();
+        int index = in.readInt();
+        Object value = readValue(in, view instanceof SGParent ? (SGParent) view : null);
+
+        // Handle child add/remove
+        if (pname == SGParent.Child_Prop) {
+            SGParent par = (SGParent) view;
+            if (value != null) par.addChild((SGView) value, index);
+            else par.removeChild(index);
+        }
+
+        // Handle children add/remove
+        else if (pname == SGParent.Children_Prop) {
+            SGParent par = (SGParent) view;
+            SGParent.ChildrenAt childrenAt = (SGParent.ChildrenAt) value;
+            if (childrenAt.getChildren() != null) par.addChildren(childrenAt);
+            else {
+                List<SGView> children = new ArrayList<>();
+                for (int childIndex : childrenAt.getIndexes())
+                    children.add(par.getChild(childIndex));
+                par.removeChildren(children);
+            }
+        }
+
+        // Handle child order: Get children for old indexes and set
+        else if (pname == SGParent.ChildOrder_Prop) {
+            SGParent par = (SGParent) view;
+            int[] indexes = (int[]) value;
+            SGView[] children = new SGView[indexes.length];
+            for (int i = 0; i < indexes.length; i++)
+                children[i] = par.getChild(indexes[i]);
+            par.setChildOrder(children);
+        }
+
+        // Handle symbol add/remove (removal value is symbol name)
+        else if (pname == SGDoc.Symbols_Prop) {
+            SGDoc doc = (SGDoc) view;
+            if (value instanceof SGSymbol) doc.addSymbol((SGSymbol) value);
+            else doc.removeSymbol((String) value);
+        }
+
+        // Handle children move
+        else if (pname == SGParent.ChildrenXY_Prop)
+            ((SGParent) view).setChildrenXY((SGParent.ChildrenXY) value);
+
+        // Handle anything else
+        else view.setKeyValue(pname, value);
+    }
+
+    /**
+     * Returns the index in given old child order of each child in given new child order.
+     */
+    private static int[] getChildOrderIndexes(SGView[] theOldChildren, SGView[] theNewChildren)
+    {
+        Map<SGView, Integer> oldIndexes = new IdentityHashMap<>();
+        for (int i = 0; i < theOldChildren.length; i++)
+            oldIndexes.put(theOldChildren[i], i);
+        int[] indexes = new int[theNewChildren.length];
+        for (int i = 0; i < theNewChildren.length; i++)
+            indexes[i] = oldIndexes.get(theNewChildren[i]);
+        return indexes;
+    }
+
+    /**
+     * Returns the index path of given view from document (or null if view isn't in document).
+     */
+    private int[] getPath(SGView aView)
+    {
+        int depth = 0;
+        for (SGView v = aView; v != _doc; v = v.getParent(), depth++)
+            if (v == null) return null;
+        int[] path = new int[depth];
+        for (SGView v = aView; v != _doc; v = v.getParent())
+            path[--depth] = v.indexOf();
+        return path;
+    }
+
+    /**
+     * Returns the view for given index path from document (pages are inflated if lazy).
+     */
+    private SGView getView(int[] aPath)
+    {
+        SGView view = _doc;
+        for (int i = 0; i < aPath.length; i++)
+            view = i == 0 ? _doc.getPage(aPath[i]) : view.getChild(aPath[i]);
+        return view;
+    }
+
+    /**
+     * Writes an index path.
+     */
+    private static void writePath(DataOutputStream anOut, int[] aPath) throws IOException
+    {
+        anOut.writeShort(aPath.length);
+        for (int index : aPath)
+            anOut.writeInt(index);
+    }
+
+    /**
+     * Reads an index path.
+     */
+    private static int[] readPath(DataInputStream anIn) throws IOException
+    {
+        int[] path = new int[anIn.readShort()];
+        for (int i = 0; i < path.length; i++)
+            path[i] = anIn.readInt();
+        return path;
+    }
+
+    /**
+     * Writes a change value. Returns false if value can't be encoded.
+     */
+    private boolean writeValue(DataOutputStream anOut, Object aValue, SGParent aParent) throws IOException
+    {
+        // Handle null and simple types
+        if (aValue == null) anOut.writeByte(VALUE_NULL);
+        else if (aValue instanceof String) { anOut.writeByte(VALUE_STRING); writeBytes(anOut, ((String) aValue)
+            .getBytes(StandardCharsets.UTF_8)); }
+        else if (aValue instanceof Integer) { anOut.writeByte(VALUE_INT); anOut.writeInt((Integer) aValue); }
+        else if (aValue instanceof Double) { anOut.writeByte(VALUE_DOUBLE); anOut.writeDouble((Double) aValue); }
+        else if (aValue instanceof Float) { anOut.writeByte(VALUE_FLOAT); anOut.writeFloat((Float) aValue); }
+        else if (aValue instanceof Long) { anOut.writeByte(VALUE_LONG); anOut.writeLong((Long) aValue); }
+        else if (aValue instanceof Boolean) { anOut.writeByte(VALUE_BOOLEAN); anOut.writeBoolean((Boolean) aValue); }
+
+        // Handle view: Write archived view
+        else if (aValue instanceof SGView) {
+            anOut.writeByte(VALUE_VIEW);
+            writeBytes(anOut, new RMArchiver().writeToXML(aValue).getBytes());
+        }
+
+        // Handle children locations: Write child indexes and locations
+        else if (aValue instanceof SGParent.ChildrenXY) {
+            SGParent.ChildrenXY cxy = (SGParent.ChildrenXY) aValue;
+            SGView[] children = cxy.getChildren();
+            double[] xs = cxy.getXs(), ys = cxy.getYs();
+            anOut.writeByte(VALUE_CHILDREN_XY);
+            anOut.writeInt(children.length);
+            for (int i = 0; i < children.length; i++) {
+                if (aParent == null || children[i].getParent() != aParent) return false;
+                anOut.writeInt(children[i].indexOf());
+                anOut.writeDouble(xs[i]);
+                anOut.writeDouble(ys[i]);
+            }
+        }
+
+        // Handle children add/remove: Write child indexes and archived children (if present)
+        else if (aValue instanceof SGParent.ChildrenAt) {
+            SGParent.ChildrenAt childrenAt = (SGParent.ChildrenAt) aValue;
+            SGView[] children = childrenAt.getChildren();
+            int[] indexes = childrenAt.getIndexes();
+            anOut.writeByte(VALUE_CHILDREN);
+            anOut.writeInt(indexes.length);
+            anOut.writeBoolean(children != null);
+            for (int i = 0; i < indexes.length; i++) {
+                anOut.writeInt(indexes[i]);
+                if (children != null)
+                    writeBytes(anOut, new RMArchiver().writeToXML(children[i]).getBytes());
+            }
+        }
+
+        // Handle Archivable: Write archived bytes
+        else if (aValue instanceof XMLArchiver.Archivable) {
+            anOut.writeByte(VALUE_ARCHIVED);
+            writeBytes(anOut, new RMArchiver().writeToXML(aValue).getBytes());
+        }
+
+        // Handle Serializable: Write serialized bytes (if value classes pass filter used to read them)
+        else if (aValue instanceof Serializable) {
+            if (!isSerialFilterAllowed(aValue.getClass())) return false;
+            ByteArrayOutputStream bout = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bout)) { out.writeObject(aValue); }
+            catch (NotSerializableException e) { return false; }
+            anOut.writeByte(VALUE_SERIAL);
+            writeBytes(anOut, bout.toByteArray());
+        }
+
+        // Otherwise, value can't be encoded
+        else return false;
+        return true;
+    }
+
+    /**
+     * Reads a change value.
+     */
+    private Object readValue(DataInputStream anIn, SGParent aParent) throws IOException
+    {
+        int type = anIn.readByte();
+        switch (type) {
+            case VALUE_NULL: return null;
+            case VALUE_STRING: return new String(readBytes(anIn), StandardCharsets.UTF_8);
+            case VALUE_INT: return anIn.readInt();
+            case VALUE_DOUBLE: return anIn.readDouble();
+            case VALUE_FLOAT: return anIn.readFloat();
+            case VALUE_LONG: return anIn.readLong();
+            case VALUE_BOOLEAN: return anIn.readBoolean();
+            case VALUE_VIEW:
+            case VALUE_ARCHIVED: return new RMArchiver().readFromXMLSource(readBytes(anIn));
+            case VALUE_CHILDREN_XY: {
+                int count = anIn.readInt();
+                SGView[] children = new SGView[count];
+                double[] xs = new double[count], ys = new double[count];
+                for (int i = 0; i < count; i++) {
+                    children[i] = aParent.getChild(anIn.readInt());
+                    xs[i] = anIn.readDouble();
+                    ys[i] = anIn.readDouble();
+                }
+                return new SGParent.ChildrenXY(children, xs, ys);
+            }
+            case VALUE_CHILDREN: {
+                int count = anIn.readInt();
+                SGView[] children = anIn.readBoolean() ? new SGView[count] : null;
+                int[] indexes = new int[count];
+                for (int i = 0; i < count; i++) {
+                    indexes[i] = anIn.readInt();
+                    if (children != null)
+                        children[i] = (SGView) new RMArchiver().readFromXMLSource(readBytes(anIn));
+                }
+                return new SGParent.ChildrenAt(children, indexes);
+            }
+            case VALUE_SERIAL:
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(readBytes(anIn)))) {
+                    in.setObjectInputFilter(SERIAL_FILTER);
+                    return in.readObject();
+                }
+                catch (ClassNotFoundException e) { throw new IOException(e); }
+            default: throw new IOException("EditorJournal: Unknown value type " + type);
+        }
+    }
+
+    /**
+     * Returns whether given class passes the filter for serialized values (see SERIAL_FILTER).
+     */
+    private static boolean isSerialFilterAllowed(Class<?> aClass)
+    {
+        String pkg = aClass.getPackageName();
+        return pkg.equals("java.lang") || pkg.equals("java.util") || pkg.equals("snap") || pkg.startsWith("snap.") ||
+            pkg.equals("rmdraw.scene") || pkg.startsWith("rmdraw.scene.");
+    }
+
+    /**
+     * Writes a length prefixed byte array.
+     */
+    private static void writeBytes(DataOutputStream anOut, byte[] theBytes) throws IOException
+    {
+        anOut.writeInt(theBytes.length);
+        anOut.write(theBytes);
+    }
+
+    /**
+     * Reads a length prefixed byte array.
+     */
+    private static byte[] readBytes(DataInputStream anIn) throws IOException
+    {
+        byte[] bytes = new byte[anIn.readInt()];
+        anIn.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Returns the journal file for given document file.
+     */
+    public static File getJournalFile(File aDocFile)
+    {
+        return new File(aDocFile.getPath() + ".journal");
+    }
+}
@@ -3,9 +3,14 @@
  */
 package rmdraw.app;
 import rmdraw.scene.*;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 import snap.gfx.*;
 import snap.props.PropChange;
+import snap.props.UndoSet;
+import snap.props.Undoer;
 import snap.view.*;
 import snap.viewx.*;
 import snap.web.*;
@@ -25,6 +30,15 @@ public class EditorPane extends ViewerPane {
     // The shared attributes inspector (go ahead and create to get RMColorPanel created)
     AttributesPanel _attrsPanel = createAttributesPanel();
 
+    // The background save thread, if save in progress
+    private Thread _saveThread;
+
+    // The save progress (or -1 if not saving)
+    private double _saveProgress = -1;
+
+    // The scheduler that throttles EditorPane resets
+    private UIResetScheduler _resetScheduler = new UIResetScheduler(this);
+
     // The image for a window frame icon
     private static Image _frameImg;
 
@@ -164,12 +178,38 @@ public class EditorPane extends ViewerPane {
         enableEvents(win, WinClose);
     }
 
+    /**
+     * Returns the scheduler that throttles EditorPane resets.
+     */
+    public UIResetScheduler getResetScheduler()
+    {
+        return _resetScheduler;
+    }
+
+    /**
+     * Override to coalesce reset requests to at most one per frame interval.
+     */
+    public void resetLater()
+    {
+        _resetScheduler.resetLater();
+    }
+
+    /**
+     * Called by reset scheduler to register for reset.
+     */
+    protected void resetLaterImpl()
+    {
+        super.resetLater();
+    }
+
     /**
      * Updates the editor's UI panels.
      */
     protected void resetUI()
     {
-        // Do normal update
+        // Open reset pass and do normal update
+        _resetScheduler.openResetPass();
+        long startTime = System.nanoTime();
         super.resetUI();
 
         // If title has changed, update window title
@@ -182,10 +222,12 @@ public class EditorPane extends ViewerPane {
             }
         }
 
-        // Reset MenuBar, InspectorPanel and AttributesPanel
-        if (!ViewUtils.isMouseDown()) getMenuBar().resetLater();
+        // Reset MenuBar, InspectorPanel and AttributesPanel (if visible)
+        if (isWindowVisible() && !ViewUtils.isMouseDown()) getMenuBar().resetLater();
         if (getInspectorPanel().isResetWithEditor()) getInspectorPanel().resetLater();
         if (getAttributesPanel().isVisible() && !ViewUtils.isMouseDown()) getAttributesPanel().resetLater();
+        _resetScheduler.recordReset("EditorPane", startTime);
+        _resetScheduler.closeResetPassLater();
     }
 
     /**
@@ -263,7 +305,7 @@ public class EditorPane extends ViewerPane {
      */
     public String[] getFileExtensions()
     {
-        return new String[]{".rpt", ".pdf"};
+        return new String[]{".rpt", ".rptb", ".pdf"};
     }
 
     /**
@@ -271,7 +313,7 @@ public class EditorPane extends ViewerPane {
      */
     public String getFileDescription()
     {
-        return "ReportMill files (.rpt, .pdf)";
+        return "ReportMill files (.rpt, .rptb, .pdf)";
     }
 
     /**
@@ -288,6 +330,9 @@ public class EditorPane extends ViewerPane {
         if (!MathUtils.equals(getEditor().getZoomFactor(), 1f))
             title += " @ " + Math.round(getEditor().getZoomFactor() * 100) + "%";
 
+        // If saving, add save progress
+        if (_saveProgress >= 0) title += " (Saving " + Math.round(_saveProgress * 100) + "%)";
+
         // If previewing, add "(Previewing)" and return
         if (getEditor().isPreview()) title += " (Previewing)";
         return title;
@@ -350,8 +395,10 @@ public class EditorPane extends ViewerPane {
         // If no document, just return null
         if (doc == null) return null;
 
-        // Set document
+        // Set document (and open change journal for it)
+        closeJournal();
         getViewer().setDoc(doc);
+        openJournal();
 
         // If source is URL, add to recent files
         if (url != null)
@@ -396,6 +443,12 @@ public class EditorPane extends ViewerPane {
             return;
         }
 
+        // If save already in progress, just beep and return
+        if (isSaving()) {
+            ViewUtils.beep();
+            return;
+        }
+
         // Make sure editor isn't previewing and has focus (to commit any inspector textfield changes)
         setEditing(true);
         getEditor().requestFocus();
@@ -405,30 +458,265 @@ public class EditorPane extends ViewerPane {
             saveImpl();
         }
         catch (Throwable e) {
-            e.printStackTrace();
-            String msg = "The file " + url.getPath() + " could not be saved (" + e + ").";
-            DialogBox dbox = new DialogBox("Error on Save");
-            dbox.setErrorMessage(msg);
-            dbox.showMessageDialog(getUI());
+            saveFailed(url, e);
+        }
+    }
+
+    /**
+     * The real save method: Takes document snapshot and writes it on a background thread (calls saveFinished() or
+     * saveFailed() when done).
+     */
+    protected void saveImpl()
+    {
+        // Get document, URL and whether saving to binary format
+        SGDoc doc = getDoc();
+        WebURL url = getSourceURL();
+        boolean binary = url.getPath().toLowerCase().endsWith(".rptb");
+
+        // If journal is for another file (SaveAs), close it
+        EditorJournal journal = getEditor().getJournal();
+        if (journal != null && !journal.getDocFile().getPath().equals(url.getPath())) {
+            closeJournal();
+            journal = null;
+        }
+
+        // Get document snapshot (so editing can continue while it is written) and journal position for snapshot
+        UndoSet undoSet = doc.getUndoer().getUndoSetLast();
+        SGDoc snapshot = doc.getSnapshot();
+        long journalPos;
+        try { journalPos = journal != null ? journal.getLength() : 0; }
+        catch (IOException e) {
+            saveFailed(url, e);
             return;
         }
+        EditorJournal journalFinal = journal;
+
+        // Write snapshot on background thread
+        setSaveProgress(0);
+        _saveThread = new Thread(() -> {
+            try {
+                writeSnapshot(snapshot, url, binary);
+                runLater(() -> saveFinished(doc, snapshot, url, journalFinal, journalPos, undoSet));
+            }
+            catch (Throwable e) { runLater(() -> saveFailed(url, e)); }
+        }, "EditorPane.Save");
+        _saveThread.start();
+    }
+
+    /**
+     * Writes given document snapshot to given URL (called on save thread).
+     */
+    protected void writeSnapshot(SGDoc aDoc, WebURL aURL, boolean isBinary) throws IOException
+    {
+        // Archive changed pages to compact page XML (so document can share them in next snapshot)
+        aDoc.dehydrateSnapshotPages();
+
+        // Get archiver that reports progress to UI
+        RMArchiver archiver = new RMArchiver();
+        archiver.setProgressHandler(p -> runLater(() -> setSaveProgress(p)));
+
+        // If local file, stream document straight to disk (via temp file, so failed save doesn't clobber original)
+        if ("file".equals(aURL.getScheme())) {
+            File jfile = new File(aURL.getPath());
+            File tfile = new File(jfile.getPath() + ".tmp");
+            try {
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tfile))) {
+                    if (isBinary) aDoc.writeBinary(out, archiver);
+                    else aDoc.writeXML(out, archiver);
+                }
+                Files.move(tfile.toPath(), jfile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            // If write or move failed, delete partial temp file
+            catch (IOException | RuntimeException | Error e) {
+                tfile.delete();
+                throw e;
+            }
+            WebFile file = aURL.getFile();
+            if (file != null) file.reload();
+            return;
+        }
+
+        // Otherwise, set file bytes and save
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        if (isBinary) aDoc.writeBinary(bout, archiver);
+        else aDoc.writeXML(bout, archiver);
+        WebFile file = aURL.getFile();
+        if (file == null) file = aURL.createFile(false);
+        file.setBytes(bout.toByteArray());
+        file.save();
+    }
+
+    /**
+     * Called when save finishes: Adds URL to RecentFiles, gives unchanged pages their archived pages from snapshot,
+     * clears undoer (unless document changed since save started) and resets given journal for new document file,
+     * keeping changes made after given journal snapshot position.
+     */
+    protected void saveFinished(SGDoc aDoc, SGDoc aSnapshot, WebURL aURL, EditorJournal aJournal, long aJournalPos,
+        UndoSet anUndoSet)
+    {
+        // Clear save thread and add URL to RecentFiles
+        _saveThread = null;
+        setSaveProgress(-1);
+        RecentFiles.addURL(aURL);
+
+        // If document was replaced or window closed, just return
+        if (aDoc != getDoc() || !isWindowVisible()) return;
+
+        // Let unchanged pages keep archived pages from snapshot (next snapshot shares them instead of cloning)
+        aDoc.snapshotSaved(aSnapshot);
+
+        // Clear undoer if no changes since save started
+        Undoer undoer = aDoc.getUndoer();
+        boolean changed = undoer.getUndoSetLast() != anUndoSet || undoer.getActiveUndoSet().getChangeCount() > 0;
+        if (!changed)
+            undoer.reset();
+
+        // If document was written, reset journal for new document file (or open journal if new file)
+        EditorJournal journal = getEditor().getJournal();
+        if (journal == null)
+            openJournal();
+        else if (journal == aJournal) {
+            try { journal.reset(aJournalPos, changed); }
+            catch (IOException e) {
+                System.err.println("EditorPane.saveFinished: " + e);
+                journal.setIncomplete();
+            }
+        }
+    }
+
+    /**
+     * Called when save fails: Reports error.
+     */
+    protected void saveFailed(WebURL aURL, Throwable anError)
+    {
+        // Clear save thread
+        _saveThread = null;
+        setSaveProgress(-1);
+
+        // Report error
+        anError.printStackTrace();
+        String msg = "The file " + aURL.getPath() + " could not be saved (" + anError + ").";
+        DialogBox dbox = new DialogBox("Error on Save");
+        dbox.setErrorMessage(msg);
+        dbox.showMessageDialog(getUI());
+    }
+
+    /**
+     * Returns whether a save is in progress.
+     */
+    public boolean isSaving()
+    {
+        return _saveThread != null;
+    }
 
-        // Add URL to RecentFiles, clear undoer and reset UI
-        RecentFiles.addURL(url);
-        getDoc().getUndoer().reset();
+    /**
+     * Sets the save progress (or -1 if not saving), shown in window title.
+     */
+    protected void setSaveProgress(double aValue)
+    {
+        _saveProgress = aValue;
         resetLater();
     }
 
     /**
-     * The real save method.
+     * Opens change journal for current document, if journal mode and document is local file: Offers to recover
+     * changes made after last save (if app didn't exit cleanly).
      */
-    protected void saveImpl()
+    protected void openJournal()
     {
+        // If not journal mode or document isn't local file, just return
         WebURL url = getSourceURL();
-        WebFile file = url.getFile();
-        if (file == null) file = url.createFile(false);
-        file.setBytes(getDoc().getBytes());
-        file.save();
+        if (!EditorJournal.JOURNAL_ENABLED || url == null || !"file".equals(url.getScheme())) return;
+
+        // Open journal and read changes made after last save
+        EditorJournal journal = new EditorJournal(getDoc(), new File(url.getPath()));
+        List<byte[]> pending;
+        try { pending = journal.openAndReplay(); }
+        catch (IOException e) {
+            System.err.println("EditorPane.openJournal: " + e);
+            journal.close();
+            return;
+        }
+        getEditor().setJournal(journal);
+
+        // If journal didn't match document file, tell user where it was moved
+        if (journal.isStale())
+            runLater(() -> showStaleJournalMessage(journal));
+
+        // If there are changes after last save (or journal was incomplete), offer to recover
+        if (pending.size() > 0 || journal.isRecoveryIncomplete())
+            runLater(() -> recoverJournalChanges(journal, pending));
+    }
+
+    /**
+     * Tells user that unsaved changes journal didn't match document file (changed outside editor) and was moved aside.
+     */
+    private void showStaleJournalMessage(EditorJournal aJournal)
+    {
+        String msg = getSourceURL().getFilename() + " was changed outside the editor since its unsaved changes were " +
+            "recorded, so they were not recovered. They were kept in " + aJournal.getStaleFile().getName() + ".";
+        DialogBox dbox = new DialogBox("Unsaved Changes Not Recovered");
+        dbox.setWarningMessage(msg);
+        dbox.showMessageDialog(getUI());
+    }
+
+    /**
+     * Asks user whether to recover unsaved journal changes and, if so, applies them as new edits. If journal was
+     * incomplete, tells user that later changes were lost.
+     */
+    private void recoverJournalChanges(EditorJournal aJournal, List<byte[]> theChanges)
+    {
+        // If journal was incomplete with no changes, just tell user
+        String filename = getSourceURL().getFilename();
+        if (theChanges.size() == 0) {
+            DialogBox dbox = new DialogBox("Unsaved Changes Not Recovered");
+            dbox.setWarningMessage("Unsaved changes to " + filename + " could not be recorded and were lost.");
+            dbox.showMessageDialog(getUI());
+            aJournal.discardChanges();
+            return;
+        }
+
+        // Run option panel for recover confirmation (just return if denied)
+        String msg = "Recover " + theChanges.size() + " unsaved changes to " + filename + "?";
+        if (aJournal.isRecoveryIncomplete())
+            msg += " Changes made after these could not be recorded and were lost.";
+        DialogBox dbox = new DialogBox("Recover Unsaved Changes");
+        dbox.setQuestionMessage(msg);
+        if (!dbox.showConfirmDialog(getUI())) {
+            aJournal.discardChanges();
+            return;
+        }
+
+        // Apply changes (as undoable edits that are journaled again)
+        try { aJournal.applyChanges(theChanges); }
+        catch (Exception e) {
+            e.printStackTrace();
+            aJournal.setIncomplete();
+        }
+        getEditor().saveUndoerChanges();
+        resetLater();
+    }
+
+    /**
+     * Discards journal changes since last save.
+     */
+    private void discardJournalChanges()
+    {
+        EditorJournal journal = getEditor().getJournal();
+        if (journal != null)
+            journal.discardChanges();
+    }
+
+    /**
+     * Closes the change journal for current document.
+     */
+    private void closeJournal()
+    {
+        EditorJournal journal = getEditor().getJournal();
+        if (journal == null) return;
+        journal.close();
+        getEditor().setJournal(null);
     }
 
     /**
@@ -446,7 +734,8 @@ public class EditorPane extends ViewerPane {
         dbox.setQuestionMessage(msg);
         if (!dbox.showConfirmDialog(getUI())) return;
 
-        // Re-open filename
+        // Discard journal changes since last save and re-open filename
+        discardJournalChanges();
         getSourceURL().getFile().reload();
         open(getSourceURL());
     }
@@ -469,7 +758,9 @@ public class EditorPane extends ViewerPane {
             switch (dbox.showOptionDialog(getUI(), "Save")) {
                 case 0:
                     save();
+                    break;
                 case 1:
+                    discardJournalChanges();
                     break;
                 default:
                     return false;
@@ -486,8 +777,9 @@ public class EditorPane extends ViewerPane {
      */
     protected void closeQuick()
     {
-        // Hide window
+        // Hide window and close journal
         getWindow().hide();
+        closeJournal();
 
         // If another open editor is available focus on it, otherwise run WelcomePanel
         EditorPane epane = WindowView.getOpenWindowOwner(EditorPane.class);
@@ -502,6 +794,12 @@ public class EditorPane extends ViewerPane {
      */
     public void quit()
     {
+        // Wait for background save to finish
+        Thread saveThread = _saveThread;
+        if (saveThread != null)
+            try { saveThread.join(); }
+            catch (InterruptedException e) { }
+
         App.quitApp();
     }
 
@@ -46,6 +46,7 @@ public class EditorPaneMenuBar extends EditorPane.SupportPane {
     protected void resetUI()
     {
         // Get the editor undoer
+        long startTime = System.nanoTime();
         Undoer undoer = getEditor().getUndoer();
 
         // Update UndoMenuItem
@@ -60,6 +61,7 @@ public class EditorPaneMenuBar extends EditorPane.SupportPane {
 
         // Update ShowRulersMenuItem
         setViewValue("ShowRulersMenuItem", getEditorPane().isShowRulers());
+        getEditorPane().getResetScheduler().recordReset("MenuBar", startTime);
     }
 
     /**
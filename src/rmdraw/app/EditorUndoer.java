@@ -0,0 +1,440 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package rmdraw.app;
+import rmdraw.scene.*;
+import java.io.*;
+import java.util.*;
+import snap.props.PropChange;
+import snap.props.UndoSet;
+import snap.props.Undoer;
+
+/**
+ * An Undoer subclass for Editor that coalesces repeated changes to the same view property in an undo set and
+ * keeps the undo history within a byte budget by spilling older undo sets to a temp file (paged back in on undo).
+ * Views that changes reference (including removed views) stay in memory, so they aren't counted against the budget.
+ */
+public class EditorUndoer extends Undoer {
+
+    // The estimated bytes of undo sets that are in memory
+    private Map<UndoSet, Long> _setBytes = new WeakHashMap<>();
+
+    // The undo sets that have been spilled to file, mapped to their file location and referenced objects
+    private Map<UndoSet, Spill> _spilled = new WeakHashMap<>();
+
+    // The spill file
+    private RandomAccessFile _spillFile;
+
+    // Whether undo or redo is in progress
+    private boolean _undoRedoing;
+
+    // The approximate number of bytes undo sets can hold in memory before older sets are spilled (this only counts
+    // memory that spilling releases: Views stay in memory as spill refs, so they count as references)
+    public static long UNDO_BYTE_BUDGET = 8 * 1024 * 1024;
+
+    // The unused bytes spill file can hold before it is compacted
+    private static final long SPILL_COMPACT_MIN = 1024 * 1024;
+
+    /**
+     * Override to coalesce change with earlier change to same source and property in active undo set.
+     */
+    public void addPropChange(PropChange aPC)
+    {
+        // If enabled, try to coalesce with earlier change
+        if (isEnabled()) {
+            List<PropChange> changes = getActiveUndoSet().getChanges();
+            int index = getCoalesceIndex(changes, aPC);
+            if (index >= 0) {
+                PropChange first = changes.get(index);
+                changes.set(index, new PropChange(first.getSource(), first.getPropName(), first.getOldValue(),
+                        aPC.getNewValue()));
+                return;
+            }
+        }
+
+        // Do normal version
+        super.addPropChange(aPC);
+    }
+
+    /**
+     * Returns the index of change in given list that given change can be merged into (or -1).
+     * Merging is only safe if every change after it is also a simple property change on same source.
+     */
+    private static int getCoalesceIndex(List<PropChange> theChanges, PropChange aPC)
+    {
+        // If not simple change, just return
+        if (!isSimpleChange(aPC)) return -1;
+        Object src = aPC.getSource();
+        String pname = aPC.getPropName();
+
+        // Iterate back over changes to find match
+        for (int i = theChanges.size() - 1; i >= 0; i--) {
+            PropChange pc = theChanges.get(i);
+            if (pc.getSource() != src || !isSimpleChange(pc))
+                return -1;
+            if (pc.getPropName() == pname || pc.getPropName().equals(pname)) {
+                if (pname == SGParent.ChildrenXY_Prop && !isSameChildren(pc, aPC))
+                    return -1;
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns whether change is a plain, non-indexed PropChange that just sets a value. Structural changes (children
+     * and symbols added or removed) aren't simple, since old and new values are the added and removed objects.
+     */
+    private static boolean isSimpleChange(PropChange aPC)
+    {
+        if (aPC.getClass() != PropChange.class || aPC.getIndex() >= 0) return false;
+        String pname = aPC.getPropName();
+        return pname != SGParent.Child_Prop && pname != SGParent.Children_Prop && pname != SGDoc.Symbols_Prop;
+    }
+
+    /**
+     * Returns whether two ChildrenXY changes move the same children.
+     */
+    private static boolean isSameChildren(PropChange aPC1, PropChange aPC2)
+    {
+        SGParent.ChildrenXY xy1 = (SGParent.ChildrenXY) aPC1.getNewValue();
+        SGParent.ChildrenXY xy2 = (SGParent.ChildrenXY) aPC2.getNewValue();
+        return Arrays.equals(xy1.getChildren(), xy2.getChildren());
+    }
+
+    /**
+     * Override to page in last undo set if it was spilled.
+     */
+    public UndoSet undo()
+    {
+        UndoSet undoSet = getUndoSetLast();
+        if (undoSet != null)
+            pageIn(undoSet);
+        _undoRedoing = true;
+        try { return super.undo(); }
+        finally { _undoRedoing = false; }
+    }
+
+    /**
+     * Override to track redo in progress.
+     */
+    public UndoSet redo()
+    {
+        _undoRedoing = true;
+        try { return super.redo(); }
+        finally { _undoRedoing = false; }
+    }
+
+    /**
+     * Override to clear spilled undo sets and truncate spill file.
+     */
+    public void reset()
+    {
+        super.reset();
+        _spilled.clear();
+        _setBytes.clear();
+        pruneSpillFile();
+    }
+
+    /**
+     * Returns whether undo or redo is in progress (changes are user changes even if undoer is disabled).
+     */
+    public boolean isUndoRedoing()
+    {
+        return _undoRedoing;
+    }
+
+    /**
+     * Spills oldest undo sets to file until in-memory undo sets are within byte budget.
+     */
+    public void checkByteBudget()
+    {
+        // Release undo sets dropped from undo list since last check
+        pruneSpillFile();
+
+        // Get undo sets and total bytes of those in memory
+        List<UndoSet> undoSets = getUndoSets();
+        long total = 0;
+        for (UndoSet undoSet : undoSets)
+            if (!_spilled.containsKey(undoSet))
+                total += getBytes(undoSet);
+
+        // Spill oldest undo sets (but never last one) until under budget
+        for (int i = 0, iMax = undoSets.size() - 1; i < iMax && total > UNDO_BYTE_BUDGET; i++) {
+            UndoSet undoSet = undoSets.get(i);
+            if (_spilled.containsKey(undoSet)) continue;
+            long bytes = getBytes(undoSet);
+            if (spill(undoSet))
+                total -= bytes;
+        }
+    }
+
+    /**
+     * Returns the estimated bytes of undo set changes (cached).
+     */
+    private long getBytes(UndoSet anUndoSet)
+    {
+        Long bytes = _setBytes.get(anUndoSet);
+        if (bytes == null) {
+            long sum = 64;
+            for (PropChange pc : anUndoSet.getChanges())
+                sum += 48 + getBytes(pc.getOldValue()) + getBytes(pc.getNewValue());
+            _setBytes.put(anUndoSet, bytes = sum);
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the estimated bytes of a change value that spilling releases (views are held as refs, so they count as
+     * references, not as view subtrees).
+     */
+    private static long getBytes(Object aValue)
+    {
+        if (aValue == null) return 0;
+        if (aValue instanceof String) return 40 + 2 * ((String) aValue).length();
+        if (aValue instanceof Number || aValue instanceof Boolean) return 16;
+        if (aValue instanceof byte[]) return 16 + ((byte[]) aValue).length;
+        if (aValue instanceof SGParent.ChildrenXY) return 48 + 24 * ((SGParent.ChildrenXY) aValue).getChildren().length;
+        if (aValue instanceof SGView[]) return 16 + 8 * ((SGView[]) aValue).length;
+        if (aValue instanceof Collection) return 40 + 8 * ((Collection) aValue).size();
+
+        // Handle views and children add/remove: Views are kept as refs
+        if (aValue instanceof SGView) return 16;
+        if (aValue instanceof SGParent.ChildrenAt)
+            return 48 + 12 * ((SGParent.ChildrenAt) aValue).getIndexes().length;
+        return 64;
+    }
+
+    /**
+     * Writes undo set changes to spill file and clears them from memory. Returns whether set was spilled.
+     */
+    private boolean spill(UndoSet anUndoSet)
+    {
+        // If any change isn't simple, just return
+        List<PropChange> changes = anUndoSet.getChanges();
+        for (PropChange pc : changes)
+            if (pc.getClass() != PropChange.class)
+                return false;
+
+        // Write changes to bytes (views are written as ids of spill refs)
+        Spill spill = new Spill();
+        byte[] bytes;
+        try {
+            ByteArrayOutputStream bout = new ByteArrayOutputStream();
+            RefOutputStream out = new RefOutputStream(bout, spill);
+            out.writeInt(changes.size());
+            for (PropChange pc : changes) {
+                out.writeInt(spill.getRefId(pc.getSource()));
+                out.writeUTF(pc.getPropName());
+                out.writeObject(pc.getOldValue());
+                out.writeObject(pc.getNewValue());
+                out.writeInt(pc.getIndex());
+            }
+            out.close();
+            bytes = bout.toByteArray();
+        }
+
+        // If a value isn't serializable, leave undo set in memory
+        catch (IOException e) { return false; }
+
+        // Append bytes to spill file
+        try {
+            RandomAccessFile file = getSpillFile();
+            spill._offset = file.length();
+            spill._length = bytes.length;
+            file.seek(spill._offset);
+            file.write(bytes);
+            spill._refIds = null;
+            _spilled.put(anUndoSet, spill);
+        }
+        catch (IOException e) {
+            System.err.println("EditorUndoer.spill: " + e);
+            return false;
+        }
+
+        // Clear changes from memory
+        changes.clear();
+        _setBytes.remove(anUndoSet);
+        return true;
+    }
+
+    /**
+     * Reads undo set changes back from spill file if undo set was spilled.
+     */
+    private void pageIn(UndoSet anUndoSet)
+    {
+        // Get spill (just return if not spilled)
+        Spill spill = _spilled.remove(anUndoSet);
+        if (spill == null) return;
+
+        // Read changes and restore to undo set
+        try {
+            byte[] bytes = readSpill(spill);
+            ObjectInputStream in = new RefInputStream(new ByteArrayInputStream(bytes), spill);
+            List<PropChange> changes = anUndoSet.getChanges();
+            for (int i = 0, iMax = in.readInt(); i < iMax; i++) {
+                Object src = spill._refs.get(in.readInt());
+                String pname = in.readUTF().intern();
+                Object oldVal = in.readObject();
+                Object newVal = in.readObject();
+                int index = in.readInt();
+                changes.add(new PropChange(src, pname, oldVal, newVal, index));
+            }
+        }
+        catch (IOException | ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+
+        // Truncate or compact spill file if mostly unused
+        pruneSpillFile();
+    }
+
+    /**
+     * Returns the bytes for given spill from spill file.
+     */
+    private byte[] readSpill(Spill aSpill) throws IOException
+    {
+        byte[] bytes = new byte[aSpill._length];
+        _spillFile.seek(aSpill._offset);
+        _spillFile.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Returns the spill file.
+     */
+    private RandomAccessFile getSpillFile() throws IOException
+    {
+        if (_spillFile != null) return _spillFile;
+        File file = File.createTempFile("RMDrawUndo", ".tmp");
+        file.deleteOnExit();
+        return _spillFile = new RandomAccessFile(file, "rw");
+    }
+
+    /**
+     * Drops spilled undo sets that are no longer in undo list (from reset or trim), which releases the views they
+     * reference, and truncates spill file if nothing is spilled or compacts it if it is mostly unused.
+     */
+    private void pruneSpillFile()
+    {
+        // Remove spilled undo sets that are no longer in undo list
+        Set<UndoSet> undoSets = Collections.newSetFromMap(new IdentityHashMap<>());
+        undoSets.addAll(getUndoSets());
+        _spilled.keySet().retainAll(undoSets);
+
+        // If no spill file, just return
+        if (_spillFile == null) return;
+
+        // Get bytes of spilled undo sets
+        long bytes = 0;
+        for (Spill spill : _spilled.values())
+            bytes += spill._length;
+
+        // If nothing spilled, truncate file, otherwise if file is mostly unused, compact
+        try {
+            if (bytes == 0)
+                _spillFile.setLength(0);
+            else if (_spillFile.length() - bytes > Math.max(bytes, SPILL_COMPACT_MIN))
+                compactSpillFile();
+        }
+        catch (IOException e) { System.err.println("EditorUndoer.pruneSpillFile: " + e); }
+    }
+
+    /**
+     * Moves spilled undo sets to start of spill file (in file order) and truncates the rest.
+     */
+    private void compactSpillFile() throws IOException
+    {
+        List<Spill> spills = new ArrayList<>(_spilled.values());
+        spills.sort(Comparator.comparingLong(spill -> spill._offset));
+        long end = 0;
+        for (Spill spill : spills) {
+            if (spill._offset != end) {
+                byte[] bytes = readSpill(spill);
+                _spillFile.seek(end);
+                _spillFile.write(bytes);
+                spill._offset = end;
+            }
+            end += spill._length;
+        }
+        _spillFile.setLength(end);
+    }
+
+    /**
+     * The file location of a spilled undo set and the objects its changes reference (sources and view values).
+     * Refs are held by the spill, so they are released with the undo set.
+     */
+    private static class Spill {
+
+        // The offset and length in spill file
+        long _offset;
+        int _length;
+
+        // The referenced objects, and their ids (while writing)
+        List<Object> _refs = new ArrayList<>();
+        Map<Object, Integer> _refIds = new IdentityHashMap<>();
+
+        /**
+         * Returns the id for given referenced object (source or view value).
+         */
+        int getRefId(Object anObj)
+        {
+            Integer id = _refIds.get(anObj);
+            if (id == null) {
+                _refIds.put(anObj, id = _refs.size());
+                _refs.add(anObj);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * A reference to an object held in refs list.
+     */
+    private static class Ref implements Serializable {
+        int id;
+        Ref(int anId)  { id = anId; }
+    }
+
+    /**
+     * An ObjectOutputStream that writes views as refs.
+     */
+    private static class RefOutputStream extends ObjectOutputStream {
+
+        // The spill that holds refs
+        private Spill _spill;
+
+        RefOutputStream(OutputStream aStream, Spill aSpill) throws IOException
+        {
+            super(aStream);
+            _spill = aSpill;
+            enableReplaceObject(true);
+        }
+
+        protected Object replaceObject(Object anObj)
+        {
+            return anObj instanceof SGView ? new Ref(_spill.getRefId(anObj)) : anObj;
+        }
+    }
+
+    /**
+     * An ObjectInputStream that resolves refs to views.
+     */
+    private static class RefInputStream extends ObjectInputStream {
+
+        // The spill that holds refs
+        private Spill _spill;
+
+        RefInputStream(InputStream aStream, Spill aSpill) throws IOException
+        {
+            super(aStream);
+            _spill = aSpill;
+            enableResolveObject(true);
+        }
+
+        protected Object resolveObject(Object anObj)
+        {
+            return anObj instanceof Ref ? _spill._refs.get(((Ref) anObj).id) : anObj;
+        }
+    }
+}
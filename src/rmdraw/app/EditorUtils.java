@@ -49,12 +49,15 @@ public class EditorUtils {
             aGroupShape.setBounds(SGViewUtils.getBoundsOfChildren(parent, shapes));
         }
 
-        // Add groupShape to the current parent (with no transform)
-        parent.addChild(aGroupShape);
-
-        // Iterate over children and group to GroupShape
-        for (SGView child : shapes)
-            groupShape(child, aGroupShape);
+        // Add groupShape to the current parent (with no transform) and group children (as one deep change batch)
+        SceneGraph scene = anEditor.getSceneGraph();
+        scene.beginDeepChangeBatch();
+        try {
+            parent.addChild(aGroupShape);
+            for (SGView child : shapes)
+                groupShape(child, aGroupShape);
+        }
+        finally { scene.endDeepChangeBatch(); }
 
         // Select group shape
         anEditor.setSelView(aGroupShape);
@@ -98,23 +101,28 @@ public class EditorUtils {
         // Register undo title for ungrouping
         anEditor.undoerSetUndoTitle("Ungroup");
 
-        // See if any of the selected shapes can be ungrouped
-        for (SGView shape : anEditor.getSelViews()) {
-
-            // If shape cann't be ungrouped, skip
-            if (!anEditor.getToolForView(shape).isUngroupable(shape)) continue;
-            SGParent groupShape = (SGParent) shape;
-            SGParent parent = groupShape.getParent();
-
-            // Iterate over children and ungroup from GroupShape
-            for (SGView child : groupShape.getChildArray()) {
-                ungroupShape(child);
-                ungroupedShapes.add(child);
+        // See if any of the selected shapes can be ungrouped (as one deep change batch)
+        SceneGraph scene = anEditor.getSceneGraph();
+        scene.beginDeepChangeBatch();
+        try {
+            for (SGView shape : anEditor.getSelViews()) {
+
+                // If shape cann't be ungrouped, skip
+                if (!anEditor.getToolForView(shape).isUngroupable(shape)) continue;
+                SGParent groupShape = (SGParent) shape;
+                SGParent parent = groupShape.getParent();
+
+                // Iterate over children and ungroup from GroupShape
+                for (SGView child : groupShape.getChildArray()) {
+                    ungroupShape(child);
+                    ungroupedShapes.add(child);
+                }
+
+                // Remove groupShape from parent
+                parent.removeChild(groupShape);
             }
-
-            // Remove groupShape from parent
-            parent.removeChild(groupShape);
         }
+        finally { scene.endDeepChangeBatch(); }
 
         // If were some ungroupedShapes, select them (set selected objects for undo/redo)
         if (ungroupedShapes.size() > 0)
@@ -530,8 +538,7 @@ public class EditorUtils {
         anEditor.undoerSetUndoTitle("Move Right One Point");
         SGDoc doc = anEditor.getDoc();
         double offset = doc.isSnapGrid() ? doc.getGridSpacing() : 1;
-        for (SGView shape : anEditor.getSelViews())
-            shape.setFrameX(shape.getFrameX() + offset);
+        moveSelViews(anEditor, offset, 0);
     }
 
     /**
@@ -542,8 +549,7 @@ public class EditorUtils {
         anEditor.undoerSetUndoTitle("Move Left One Point");
         SGDoc doc = anEditor.getDoc();
         double offset = doc.isSnapGrid() ? doc.getGridSpacing() : 1;
-        for (SGView shape : anEditor.getSelViews())
-            shape.setFrameX(shape.getFrameX() - offset);
+        moveSelViews(anEditor, -offset, 0);
     }
 
     /**
@@ -554,8 +560,7 @@ public class EditorUtils {
         anEditor.undoerSetUndoTitle("Move Up One Point");
         SGDoc doc = anEditor.getDoc();
         double offset = doc.isSnapGrid() ? doc.getGridSpacing() : 1;
-        for (SGView shape : anEditor.getSelViews())
-            shape.setFrameY(shape.getFrameY() - offset);
+        moveSelViews(anEditor, 0, -offset);
     }
 
     /**
@@ -566,8 +571,17 @@ public class EditorUtils {
         anEditor.undoerSetUndoTitle("Move Down One Point");
         SGDoc doc = anEditor.getDoc();
         double offset = doc.isSnapGrid() ? doc.getGridSpacing() : 1;
-        for (SGView shape : anEditor.getSelViews())
-            shape.setFrameY(shape.getFrameY() + offset);
+        moveSelViews(anEditor, 0, offset);
+    }
+
+    /**
+     * Moves all the currently selected shapes by given offset as a single change.
+     */
+    private static void moveSelViews(Editor anEditor, double dx, double dy)
+    {
+        SGParent parent = anEditor.getSuperSelParentView();
+        if (parent != null)
+            parent.offsetChildrenXY(anEditor.getSelViews(), dx, dy);
     }
 
     /**
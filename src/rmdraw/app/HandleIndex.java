@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package rmdraw.app;
+import rmdraw.scene.*;
+import java.util.*;
+import snap.geom.Point;
+import snap.geom.Rect;
+
+/**
+ * This class holds the handle rects of an editor's selected and super-selected views in grid buckets,
+ * so that handle hit queries (done on every mouse move) don't have to visit every selected view.
+ */
+public class HandleIndex {
+
+    // The Editor
+    private Editor _editor;
+
+    // The map of grid cell keys to handle entries in that cell (in hit-test priority order)
+    private Map<Long, List<HandleEntry>> _buckets = new HashMap<>();
+
+    // Whether index is currently valid
+    private boolean _valid;
+
+    // The size of a grid cell in editor coords
+    public static final int CELL_SIZE = 64;
+
+    /**
+     * Creates HandleIndex for given editor.
+     */
+    public HandleIndex(Editor anEditor)
+    {
+        _editor = anEditor;
+    }
+
+    /**
+     * Returns whether index is valid.
+     */
+    public boolean isValid()
+    {
+        return _valid;
+    }
+
+    /**
+     * Marks the index as needing rebuild (called when selection or view geometry changes).
+     */
+    public void invalidate()
+    {
+        _valid = false;
+    }
+
+    /**
+     * Returns the view handle for given editor point.
+     */
+    public Tool.ViewHandle getHandleAtPoint(Point aPoint)
+    {
+        // Make sure index is up to date
+        if (!_valid)
+            rebuild();
+
+        // Get bucket for point (just return if none)
+        long key = getCellKey((int) Math.floor(aPoint.x / CELL_SIZE), (int) Math.floor(aPoint.y / CELL_SIZE));
+        List<HandleEntry> bucket = _buckets.get(key);
+        if (bucket == null)
+            return null;
+
+        // Return first entry hit by point (entries are in same order as original linear search)
+        for (HandleEntry entry : bucket)
+            if (entry.rect.contains(aPoint.x, aPoint.y))
+                return new Tool.ViewHandle(entry.view, entry.handle, entry.tool);
+        return null;
+    }
+
+    /**
+     * Rebuilds the index from editor selected and super-selected views.
+     */
+    protected void rebuild()
+    {
+        // Clear buckets
+        _buckets.clear();
+
+        // Add handles for selected views (unless selection is big enough to be painted as box only)
+        int selCount = _editor.getSelViewCount();
+        if (selCount <= Tool.HANDLES_SEL_MAX) {
+            for (int i = 0; i < selCount; i++)
+                addHandles(_editor.getSelView(i), false);
+        }
+
+        // Add handles for super selected views
+        for (int i = 0, iMax = _editor.getSuperSelViewCount(); i < iMax; i++)
+            addHandles(_editor.getSuperSelView(i), true);
+
+        // Mark valid
+        _valid = true;
+    }
+
+    /**
+     * Adds handles for given view.
+     */
+    private void addHandles(SGView aView, boolean isSuperSel)
+    {
+        Tool tool = _editor.getToolForView(aView);
+        for (int i = 0, iMax = tool.getHandleCount(aView); i < iMax; i++) {
+            Rect rect = tool.getHandleRect(aView, i, isSuperSel);
+            addEntry(new HandleEntry(aView, i, tool, rect));
+        }
+    }
+
+    /**
+     * Adds given entry to every bucket its rect touches.
+     */
+    private void addEntry(HandleEntry anEntry)
+    {
+        Rect rect = anEntry.rect;
+        int x0 = (int) Math.floor(rect.x / CELL_SIZE), x1 = (int) Math.floor(rect.getMaxX() / CELL_SIZE);
+        int y0 = (int) Math.floor(rect.y / CELL_SIZE), y1 = (int) Math.floor(rect.getMaxY() / CELL_SIZE);
+        for (int x = x0; x <= x1; x++)
+            for (int y = y0; y <= y1; y++)
+                _buckets.computeIfAbsent(getCellKey(x, y), k -> new ArrayList<>()).add(anEntry);
+    }
+
+    /**
+     * Returns the key for given grid cell.
+     */
+    private static long getCellKey(int aX, int aY)
+    {
+        return ((long) aX << 32) | (aY & 0xffffffffL);
+    }
+
+    /**
+     * A class to hold a handle rect for a view/handle/tool.
+     */
+    private static class HandleEntry {
+
+        // The view, handle index, tool and handle rect in editor coords
+        SGView view;
+        int handle;
+        Tool tool;
+        Rect rect;
+
+        /**
+         * Creates HandleEntry.
+         */
+        HandleEntry(SGView aView, int aHandle, Tool aTool, Rect aRect)
+        {
+            view = aView;
+            handle = aHandle;
+            tool = aTool;
+            rect = aRect;
+        }
+    }
+}
@@ -98,9 +98,19 @@ public class InspectorPanel extends EditorPane.SupportPane {
     }
 
     /**
-     * Refreshes the inspector for the current editor selection.
+     * Refreshes the inspector for the current editor selection (and records reset time).
      */
     public void resetUI()
+    {
+        long startTime = System.nanoTime();
+        resetUIImpl();
+        getEditorPane().getResetScheduler().recordReset("InspectorPanel", startTime);
+    }
+
+    /**
+     * Refreshes the inspector for the current editor selection.
+     */
+    protected void resetUIImpl()
     {
         // Get editor (and just return if null) and tool for selected views
         Editor editor = getEditor();
@@ -358,13 +358,19 @@ public class SelectTool extends Tool {
      */
     private void moveShapes(Point fromPoint, Point toPoint)
     {
-        // Iterate over selected shapes
-        for (int i = 0, iMax = getEditor().getSelViewCount(); i < iMax; i++) {
-            SGView shape = getEditor().getSelView(i);
-            if (shape.isLocked()) continue;
-            double fx = fromPoint.getX(), fy = fromPoint.getY(), tx = toPoint.getX(), ty = toPoint.getY();
-            shape.setFrameXY(shape.getFrameX() + tx - fx, shape.getFrameY() + ty - fy);
+        // Get unlocked selected shapes
+        Editor editor = getEditor();
+        List<SGView> shapes = new ArrayList<>(editor.getSelViewCount());
+        for (int i = 0, iMax = editor.getSelViewCount(); i < iMax; i++) {
+            SGView shape = editor.getSelView(i);
+            if (!shape.isLocked()) shapes.add(shape);
         }
+
+        // Move shapes as single transaction in parent (one repaint, one change)
+        SGParent parent = editor.getSuperSelParentView();
+        if (parent == null) return;
+        double dx = toPoint.getX() - fromPoint.getX(), dy = toPoint.getY() - fromPoint.getY();
+        parent.offsetChildrenXY(shapes, dx, dy);
     }
 
     /**
@@ -8,6 +8,7 @@ import rmdraw.scene.*;
 import java.text.DecimalFormat;
 import java.util.*;
 
+import snap.geom.Path2D;
 import snap.geom.Point;
 import snap.geom.Rect;
 import snap.gfx.*;
@@ -48,10 +49,20 @@ public class Tool<T extends SGView> extends ViewOwner {
     public static final byte HandleN = 6;
     public static final byte HandleS = 7;
 
+    // Handle colors for batched handle painting
+    private static Color HANDLE_FILL = new Color(.94);
+    private static Color HANDLE_STROKE = new Color(.4);
+
     // Constants
     public static Border DEFAULT_BORDER = Border.blackBorder();
     public static boolean DEFAULT_PENCIL_ONESHOT = false;
 
+    // The max selection size painted with handles (larger selections are painted with a single bounding box)
+    public static int HANDLES_SEL_MAX = 500;
+
+    // The selection size from which handles are filled and stroked as one path instead of drawn as images
+    public static int HANDLES_BATCH_MIN = 64;
+
     /**
      * Returns the view class that this tool handles.
      */
@@ -475,12 +486,61 @@ public class Tool<T extends SGView> extends ViewOwner {
         // Get editor and views
         Editor editor = getEditor();
         List<SGView> views = theViews != null ? theViews : editor.getSelViews();
+        if (views.size() == 0) return;
+
+        // If selection is large, just paint bounding box
+        if (views.size() > HANDLES_SEL_MAX) {
+            paintHandlesBox(aPntr, views);
+            return;
+        }
 
-        // Iterate over views and have tool paintHandles
+        // If selection is small, have tools paint handle images
+        if (views.size() < HANDLES_BATCH_MIN) {
+            for (SGView view : views)
+                getTool(view).paintHandles(view, aPntr, false);
+            return;
+        }
+
+        // Iterate over views and have tool add handles to batch path (or paint handles if tool paints custom handles)
+        Path2D path = new Path2D();
         for (SGView view : views) {
             Tool tool = getTool(view);
-            tool.paintHandles(view, aPntr, false);
+            if (tool.isPaintHandlesBatched(view))
+                tool.addHandlesToPath(view, path);
+            else tool.paintHandles(view, aPntr, false);
+        }
+
+        // Fill and stroke all batched handles at once
+        aPntr.setAntialiasing(false);
+        aPntr.setColor(HANDLE_FILL);
+        aPntr.fill(path);
+        aPntr.setStroke(Stroke.Stroke1);
+        aPntr.setColor(HANDLE_STROKE);
+        aPntr.draw(path);
+        aPntr.setAntialiasing(true);
+    }
+
+    /**
+     * Paints a single bounding box around given views (used instead of handles for large selections).
+     */
+    protected void paintHandlesBox(Painter aPntr, List<SGView> theViews)
+    {
+        // Get union of view frames in editor coords
+        Editor editor = getEditor();
+        Rect bounds = null;
+        for (SGView view : theViews) {
+            Rect vbnds = editor.convertFromSceneView(view.getBoundsLocal(), view).getBounds();
+            if (bounds == null) bounds = vbnds;
+            else bounds.unionEvenIfEmpty(vbnds);
         }
+
+        // Paint box
+        bounds.snap();
+        aPntr.setAntialiasing(false);
+        aPntr.setStroke(Stroke.Stroke1);
+        aPntr.setColor(HANDLE_STROKE);
+        aPntr.drawRect(bounds.x + .5, bounds.y + .5, bounds.width, bounds.height);
+        aPntr.setAntialiasing(true);
     }
 
     /**
@@ -528,6 +588,36 @@ public class Tool<T extends SGView> extends ViewOwner {
         aPntr.setAntialiasing(true);
     }
 
+    /**
+     * Returns whether handles for given (selected) view can be painted in a batch with other views.
+     * Tools that paint custom handles (or extra selection indicators) should return false.
+     */
+    protected boolean isPaintHandlesBatched(T aView)
+    {
+        return true;
+    }
+
+    /**
+     * Adds the handle rects for given selected view to given path (for batched handle painting).
+     */
+    protected void addHandlesToPath(T aView, Path2D aPath)
+    {
+        // Determine if rect should be reduced if the view is especially small
+        boolean mini = aView.getWidth() <= 20 || aView.getHeight() <= 20;
+
+        // Iterate over view handles, get rect (reduce if needed) and add to path
+        for (int i = 0, iMax = getHandleCount(aView); i < iMax; i++) {
+            Rect hr = getHandleRect(aView, i, false);
+            if (mini) hr.inset(1, 1);
+            double x = hr.x + .5, y = hr.y + .5, mx = x + hr.width - 1, my = y + hr.height - 1;
+            aPath.moveTo(x, y);
+            aPath.lineTo(mx, y);
+            aPath.lineTo(mx, my);
+            aPath.lineTo(x, my);
+            aPath.close();
+        }
+    }
+
     /**
      * Returns the number of handles for this view.
      */
@@ -755,28 +845,8 @@ public class Tool<T extends SGView> extends ViewOwner {
      */
     public ViewHandle getHandleAtPoint(Point aPoint)
     {
-        // Declare variable for view and handle and tool
-        SGView view = null;
-        int handle = -1;
-        Tool tool = null;
-        Editor editor = getEditor();
-
-        // Check selected views for a selected handle index
-        for (int i = 0, iMax = editor.getSelViewCount(); handle == -1 && i < iMax; i++) {
-            view = editor.getSelView(i);
-            tool = getTool(view);
-            handle = tool.getHandleAtPoint(view, aPoint, false);
-        }
-
-        // Check super selected views for a selected handle index
-        for (int i = 0, iMax = editor.getSuperSelViewCount(); handle == -1 && i < iMax; i++) {
-            view = editor.getSuperSelView(i);
-            tool = getTool(view);
-            handle = tool.getHandleAtPoint(view, aPoint, true);
-        }
-
-        // Return view handle
-        return handle >= 0 ? new ViewHandle(view, handle, tool) : null;
+        HandleIndex handleIndex = getEditor().getHandleIndex();
+        return handleIndex.getHandleAtPoint(aPoint);
     }
 
     /**
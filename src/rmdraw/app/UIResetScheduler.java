@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package rmdraw.app;
+import java.util.*;
+import snap.view.ViewEnv;
+
+/**
+ * This class coalesces EditorPane reset requests so that the EditorPane (and its inspectors) are reset at most
+ * once per frame interval, and records reset counts and durations: For the EditorPane and panels and for the full
+ * reset pass, which is the EditorPane reset plus the menu bar, inspector and attributes panel resets that it queues.
+ */
+public class UIResetScheduler {
+
+    // The EditorPane
+    private EditorPane _editorPane;
+
+    // Whether a reset is scheduled
+    private boolean _pending;
+
+    // The time of last reset
+    private long _lastResetTime;
+
+    // The number of reset requests
+    private int _requestCount;
+
+    // The reset time of open reset pass in nanoseconds (or -1 if no pass is open)
+    private long _passTime = -1;
+
+    // Whether close of open reset pass is queued
+    private boolean _passCloseQueued;
+
+    // The reset stats by panel name
+    private Map<String, ResetStats> _stats = new LinkedHashMap<>();
+
+    // The minimum interval between resets in milliseconds (defaults to a 60 fps frame)
+    public static int MIN_RESET_INTERVAL = 16;
+
+    /**
+     * Creates UIResetScheduler for given EditorPane.
+     */
+    public UIResetScheduler(EditorPane anEP)
+    {
+        _editorPane = anEP;
+    }
+
+    /**
+     * Requests an EditorPane reset: Resets right away if last reset was more than interval ago, otherwise
+     * schedules a single reset for end of interval.
+     */
+    public void resetLater()
+    {
+        // Update request count and if reset already scheduled, just return
+        _requestCount++;
+        if (_pending) return;
+
+        // If interval has elapsed, reset now
+        long delay = _lastResetTime + MIN_RESET_INTERVAL - System.currentTimeMillis();
+        if (delay <= 0) {
+            _resetRun.run();
+            return;
+        }
+
+        // Otherwise schedule reset for end of interval
+        _pending = true;
+        ViewEnv.getEnv().runDelayed(_resetRun, (int) delay, true);
+    }
+
+    // A Runnable to forward reset to EditorPane
+    private Runnable _resetRun = () -> {
+        _pending = false;
+        _lastResetTime = System.currentTimeMillis();
+        _editorPane.resetLaterImpl();
+    };
+
+    /**
+     * Returns the number of reset requests.
+     */
+    public int getRequestCount()
+    {
+        return _requestCount;
+    }
+
+    /**
+     * Records a panel reset that started at given time (from System.nanoTime()), adding it to open reset pass.
+     */
+    public void recordReset(String aName, long aStartTime)
+    {
+        long time = System.nanoTime() - aStartTime;
+        addReset(aName, time);
+        if (_passTime >= 0)
+            _passTime += time;
+    }
+
+    /**
+     * Opens a reset pass (if not already open), so that following panel resets are added to it.
+     */
+    public void openResetPass()
+    {
+        if (_passTime < 0)
+            _passTime = 0;
+    }
+
+    /**
+     * Closes open reset pass after panel resets queued by EditorPane reset have run (from a runLater() queued behind
+     * them), recording the sum of the reset times, not the time spent waiting for the runLater().
+     */
+    public void closeResetPassLater()
+    {
+        if (_passTime < 0 || _passCloseQueued) return;
+        _passCloseQueued = true;
+        ViewEnv.getEnv().runLater(() -> closeResetPass());
+    }
+
+    /**
+     * Records open reset pass and closes it.
+     */
+    private void closeResetPass()
+    {
+        _passCloseQueued = false;
+        if (_passTime < 0) return;
+        addReset("ResetPass", _passTime);
+        _passTime = -1;
+    }
+
+    /**
+     * Adds a reset with given time in nanoseconds to stats for given name.
+     */
+    private void addReset(String aName, long aTime)
+    {
+        ResetStats stats = _stats.computeIfAbsent(aName, k -> new ResetStats());
+        stats.count++;
+        stats.totalTime += aTime;
+        stats.maxTime = Math.max(stats.maxTime, aTime);
+    }
+
+    /**
+     * Returns the reset stats by panel name.
+     */
+    public Map<String, ResetStats> getStats()
+    {
+        return _stats;
+    }
+
+    /**
+     * Clears request count and reset stats.
+     */
+    public void clearStats()
+    {
+        _requestCount = 0;
+        _passTime = -1;
+        _stats.clear();
+    }
+
+    /**
+     * Standard toString implementation.
+     */
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder("UIResetScheduler { Requests=").append(_requestCount);
+        for (Map.Entry<String, ResetStats> entry : _stats.entrySet())
+            sb.append(", ").append(entry.getKey()).append('=').append(entry.getValue());
+        return sb.append(" }").toString();
+    }
+
+    /**
+     * A class to hold reset count and durations for a panel.
+     */
+    public static class ResetStats {
+
+        // The reset count
+        int count;
+
+        // The total and max reset time in nanoseconds
+        long totalTime, maxTime;
+
+        /** Returns the reset count. */
+        public int getCount()  { return count; }
+
+        /** Returns the total reset time in milliseconds. */
+        public double getTotalMillis()  { return totalTime / 1e6; }
+
+        /** Returns the max reset time in milliseconds. */
+        public double getMaxMillis()  { return maxTime / 1e6; }
+
+        /** Standard toString implementation. */
+        public String toString()
+        {
+            return String.format("%d resets, %.1f ms total, %.2f ms max", count, getTotalMillis(), getMaxMillis());
+        }
+    }
+}
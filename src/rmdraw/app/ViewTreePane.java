@@ -84,6 +84,7 @@ public class ViewTreePane extends EditorPane.SupportPane {
          */
         public boolean isParent(SGView anItem)
         {
+            if (anItem instanceof SGPage && ((SGPage) anItem).isLazy()) return true;
             return anItem instanceof SGParent && anItem.getChildCount() > 0;
         }
 
@@ -92,7 +93,10 @@ public class ViewTreePane extends EditorPane.SupportPane {
          */
         public SGView[] getChildren(SGView aParent)
         {
+            // If lazy page, unarchive contents
             SGParent par = (SGParent) aParent;
+            if (par instanceof SGPage)
+                ((SGPage) par).inflate();
             return par.getChildArray();
         }
 
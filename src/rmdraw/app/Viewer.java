@@ -42,6 +42,9 @@ public class Viewer extends ParentView implements SceneGraph.Client {
     // The helper class that handles events for viewer
     private ViewerInteractor _interactor = createInteractor();
 
+    // Whether an inflate of showing lazy pages is queued
+    private boolean _inflateQueued;
+
     // Zoom modes
     public enum ZoomMode {ZoomToFit, ZoomAsNeeded, ZoomToFactor}
 
@@ -431,10 +434,28 @@ public class Viewer extends ParentView implements SceneGraph.Client {
         // Paint SceneGraph
         _sceneGraph.paintScene(aPntr);
 
+        // If scrolling has exposed lazy pages, inflate them after paint (inflate adds views, so can't happen in paint)
+        SGDoc doc = getDoc();
+        if (doc != null && !_inflateQueued && doc.isLazyPagesShowing()) {
+            _inflateQueued = true;
+            runLater(() -> inflateShowingPages());
+        }
+
         // Give interactor opportunity to paint
         getInteractor().paint(aPntr); // Have event helper paint above
     }
 
+    /**
+     * Inflates document lazy pages showing in visible rect.
+     */
+    private void inflateShowingPages()
+    {
+        _inflateQueued = false;
+        SGDoc doc = getDoc();
+        if (doc != null)
+            doc.inflateShowingPages();
+    }
+
     /**
      * Returns the ViewerInteractor for viewer which handles mouse and keyboard input.
      */
@@ -523,6 +544,16 @@ public class Viewer extends ParentView implements SceneGraph.Client {
         return getZoomFactor();
     }
 
+    /**
+     * SceneGraph.Client method: Returns the visible rect of SceneGraph root view (in root view coords).
+     */
+    public Rect getSceneVisRect()
+    {
+        SGDoc doc = getDoc();
+        if (doc == null || !isShowing()) return null;
+        return convertToSceneView(getVisRect(), doc).getBounds();
+    }
+
     /**
      * SceneGraph.Client method: Called when SceneGraph needs relayout.
      */
@@ -542,6 +573,15 @@ public class Viewer extends ParentView implements SceneGraph.Client {
         repaint(bnds1);
     }
 
+    /**
+     * SceneGraph.Client method: Called when SceneGraph view needs repaint for given rect in view coords.
+     */
+    public void sceneNeedsRepaint(SGView aView, Rect aRect)
+    {
+        Rect bnds = aView.localToParent(aRect, null).getBounds();
+        repaint(bnds);
+    }
+
     /**
      * SceneGraph.Client method: Called when SceneGraph Doc has prop change.
      */
@@ -272,6 +272,14 @@ public class TextTool<T extends SGText> extends Tool<T> {
         if (anEvent.equals("MultilineCheckBox")) text.setMultiline(anEvent.getBoolValue());
     }
 
+    /**
+     * Override to paint text handles individually, since they include bounds rect and link indicator.
+     */
+    protected boolean isPaintHandlesBatched(T aView)
+    {
+        return false;
+    }
+
     /**
      * Paints selected shape indicator, like handles (and maybe a text linking indicator).
      */
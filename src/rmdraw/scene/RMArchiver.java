@@ -2,8 +2,22 @@
  * Copyright (c) 2010, ReportMill Software. All rights reserved.
  */
 package rmdraw.scene;
+import java.io.*;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
-
+import java.util.concurrent.*;
+import java.util.function.DoubleConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.xml.stream.XMLStreamException;
 import snap.gfx.*;
 import snap.text.RichText;
 import snap.text.TextLineStyle;
@@ -15,8 +29,32 @@ import snap.web.WebURL;
  */
 public class RMArchiver extends XMLArchiver {
 
-    // The shared class map
-    private static Map<String, Class> _classMapRM;
+    // The binary format reader, if reading a binary document (provides resources)
+    private RMBinaryFormat.Reader _binReader;
+
+    // The handler to notify of write progress (fraction of pages written), if set
+    private DoubleConsumer _progressHandler;
+
+    // The names of resources added, by content hash (so identical resource bytes are only archived once)
+    private Map<ContentKey, String> _resNames = new LinkedHashMap<>();
+
+    // The archiver that assigns reference ids, if not this archiver (for page archivers in parallel write)
+    private RMArchiver _refArchiver;
+
+    // The ImageRefs for resources read by this archiver, by resource name
+    private Map<String, ImageRef> _resImageRefs = new HashMap<>();
+
+    // The page element archived by this archiver (for page archivers in parallel write)
+    private XMLElement _pageXML;
+
+    // Whether to archive pages and encode resources on worker threads when writing documents
+    public static boolean PARALLEL_WRITE = true;
+
+    // The shared ImageRefs for decoded image resources, by content hash
+    private static Map<ContentKey, SharedImageRef> _imageRefsShared = new HashMap<>();
+
+    // The queue of shared ImageRef references that have been cleared (so their entries can be removed)
+    private static ReferenceQueue<ImageRef> _imageRefsQueue = new ReferenceQueue<>();
 
     /**
      * Creates RMArchiver.
@@ -25,6 +63,23 @@ public class RMArchiver extends XMLArchiver {
     {
     }
 
+    /**
+     * Sets the handler to notify of write progress (fraction of pages written).
+     */
+    public void setProgressHandler(DoubleConsumer aHandler)
+    {
+        _progressHandler = aHandler;
+    }
+
+    /**
+     * Notifies progress handler (if set) that given number of given pages have been written.
+     */
+    private void fireProgress(int aCount, int aTotal)
+    {
+        if (_progressHandler != null)
+            _progressHandler.accept(aCount / (double) aTotal);
+    }
+
     /**
      * Returns a parent shape for source.
      */
@@ -33,8 +88,21 @@ public class RMArchiver extends XMLArchiver {
         // If source is a document, just return it
         if (aSource instanceof SGDoc) return (SGDoc) aSource;
 
-        // Get URL and/or bytes (complain if not found)
+        // If source is local file, stream document straight from file
         WebURL url = WebURL.getURL(aSource);
+        if (url != null && "file".equals(url.getScheme())) {
+            File file = new File(url.getPath());
+            if (file.exists()) {
+                SGDoc doc = isBinaryFile(file) ? readDocFromBinary(ByteBuffer.wrap(getFileBytes(file))) :
+                    readDocFromXMLStream(() -> getFileInputStream(file));
+                if (doc != null) {
+                    doc.setSourceURL(url);
+                    return doc;
+                }
+            }
+        }
+
+        // Get URL and/or bytes (complain if not found)
         byte bytes[] = url != null ? url.getBytes() : SnapUtils.getBytes(aSource);
         if (bytes == null)
             throw new RuntimeException("RMArchiver.getDoc: Cannot read source: " + (url != null ? url : aSource));
@@ -42,14 +110,571 @@ public class RMArchiver extends XMLArchiver {
         // If PDF, return PDF Doc
         //if(RMPDFData.canRead(bytes)) return RMPDFShape.getDocPDF(url!=null? url : bytes, aBaseDoc);
 
-        // Read document from source
-        SGDoc doc = (SGDoc) readFromXMLSource(url != null ? url : bytes);
+        // Read document from bytes (binary format or with pull parser)
+        SGDoc doc = RMBinaryFormat.isBinary(bytes) ? readDocFromBinary(ByteBuffer.wrap(bytes)) :
+            readDocFromXMLStream(() -> new ByteArrayInputStream(bytes));
+        if (doc != null) {
+            doc.setSourceURL(url);
+            return doc;
+        }
+
+        // Otherwise, read document from source
+        doc = (SGDoc) readFromXMLSource(url != null ? url : bytes);
 
         // Set Source URL and return
         doc.setSourceURL(getSourceURL());
         return doc;
     }
 
+    /**
+     * Reads a document with a pull parser, building XMLElements for only one page at a time (or, if
+     * SGDoc.LAZY_PAGES, just keeping each page's XML string to be unarchived when page is first accessed).
+     * The stream supplier is called twice: First pass reads document attributes, resources and other non-page
+     * elements (skipping pages), second pass reads each page, unarchives it and adds it to document.
+     * Returns null if stream isn't a document XML.
+     */
+    public SGDoc readDocFromXMLStream(Supplier<InputStream> aStreamSupplier)
+    {
+        // Read document element without pages (and resources needed by pages)
+        XMLElement docXML = null;
+        InputStream stream = aStreamSupplier.get();
+        try {
+            XMLCursor cursor = new XMLCursor(stream);
+            if (cursor.nextRoot() && getClass(cursor.getName()) == SGDoc.class) {
+                docXML = cursor.readStartElement();
+                while (cursor.nextChild()) {
+                    if (isPageElement(cursor.getName())) cursor.skipElement();
+                    else docXML.add(cursor.readElement());
+                }
+            }
+            cursor.close();
+        }
+
+        // If stream isn't XML, just return null
+        catch (XMLStreamException e) { return null; }
+        finally { closeQuietly(stream); }
+
+        // If not a document, just return null
+        if (docXML == null) return null;
+
+        // Create document from element (also registers resources)
+        SGDoc doc = (SGDoc) readFromXML(docXML);
+
+        // Read pages and add to document
+        stream = aStreamSupplier.get();
+        try {
+            XMLCursor cursor = new XMLCursor(stream);
+            cursor.nextRoot();
+            while (cursor.nextChild()) {
+                if (!isPageElement(cursor.getName())) {
+                    cursor.skipElement();
+                    continue;
+                }
+                // If lazy pages, create page with just attributes and page XML string to be inflated on demand
+                if (SGDoc.LAZY_PAGES) {
+                    XMLElement pageStart = cursor.readStartElement();
+                    String pageStr = cursor.readElementString();
+                    SGPage page = createPage(getClass(pageStart.getName()));
+                    page.setLazyXML(this, pageStart, pageStr);
+                    doc.addPage(page);
+                }
+
+                // Otherwise unarchive page
+                else {
+                    XMLElement pageXML = cursor.readElement();
+                    SGPage page = (SGPage) fromXML(pageXML, doc);
+                    doc.addPage(page);
+                }
+            }
+            cursor.close();
+        }
+        catch (XMLStreamException e) { throw new RuntimeException(e); }
+        finally { closeQuietly(stream); }
+
+        // Layout and return document
+        doc.layoutDeep();
+        return doc;
+    }
+
+    /**
+     * Reads a document from given binary format buffer (see RMBinaryFormat). If SGDoc.LAZY_PAGES, pages are created
+     * with just attributes and decoded from buffer when first accessed.
+     */
+    public SGDoc readDocFromBinary(ByteBuffer aBuffer)
+    {
+        // Get reader (also provides resources) and create document from element
+        RMBinaryFormat.Reader reader = _binReader = new RMBinaryFormat.Reader(aBuffer);
+        SGDoc doc = (SGDoc) readFromXML(reader.getDocElement());
+
+        // Read pages and add to document
+        for (int i = 0, iMax = reader.getPageCount(); i < iMax; i++) {
+
+            // If lazy pages, create page with just attributes and page element to be decoded on demand
+            if (SGDoc.LAZY_PAGES) {
+                int index = i;
+                XMLElement pageStart = reader.getPageElement(i, true);
+                SGPage page = createPage(getClass(pageStart.getName()));
+                page.setLazySource(this, pageStart, () -> reader.getPageElement(index, false));
+                doc.addPage(page);
+            }
+
+            // Otherwise unarchive page
+            else {
+                XMLElement pageXML = reader.getPageElement(i, false);
+                SGPage page = (SGPage) fromXML(pageXML, doc);
+                doc.addPage(page);
+            }
+        }
+
+        // Layout and return document
+        doc.layoutDeep();
+        return doc;
+    }
+
+    /**
+     * Override to get resource from binary format reader, if available.
+     */
+    public byte[] getResource(String aName)
+    {
+        byte[] bytes = _binReader != null ? _binReader.getBlob(aName) : null;
+        return bytes != null ? bytes : super.getResource(aName);
+    }
+
+    /**
+     * Override to return name of previously added resource with identical content (instead of adding bytes again).
+     */
+    public String addResource(byte[] theBytes, String aName)
+    {
+        // Get content key (on calling thread) and add resource if new
+        ContentKey key = new ContentKey(theBytes);
+        synchronized (this) {
+            String name = _resNames.get(key);
+            if (name == null)
+                _resNames.put(key, name = super.addResource(theBytes, aName));
+            return name;
+        }
+    }
+
+    /**
+     * Override to get reference id from archiver that assigns reference ids for document, if set (page archiver for
+     * parallel write), so ids are unique and consistent across pages.
+     */
+    public int getReference(Object anObj)
+    {
+        if (_refArchiver != null)
+            return _refArchiver.getReference(anObj);
+        synchronized (this) {
+            return super.getReference(anObj);
+        }
+    }
+
+    /**
+     * Override to get reference id from archiver that assigns reference ids for document, if set (page archiver for
+     * parallel write), so ids are unique and consistent across pages.
+     */
+    public int getReference(Object anObj, boolean doAdd)
+    {
+        if (_refArchiver != null)
+            return _refArchiver.getReference(anObj, doAdd);
+        synchronized (this) {
+            return super.getReference(anObj, doAdd);
+        }
+    }
+
+    /**
+     * Returns an ImageRef for resource with given name (shared with other views/documents with identical image).
+     */
+    public ImageRef getImageRefForResource(String aName)
+    {
+        // If already loaded, just return
+        ImageRef iref = _resImageRefs.get(aName);
+        if (iref != null) return iref;
+
+        // Get resource bytes and shared ImageRef
+        byte[] bytes = getResource(aName);
+        iref = getImageRefShared(bytes);
+        _resImageRefs.put(aName, iref);
+        return iref;
+    }
+
+    /**
+     * Returns an ImageRef for given image bytes, shared by all images loaded with identical bytes.
+     */
+    public static ImageRef getImageRefShared(byte[] theBytes)
+    {
+        // If no bytes, just return normal version
+        if (theBytes == null) return ImageRef.getImageRef(theBytes);
+
+        // Get content key (outside lock, since digest is proportional to bytes)
+        ContentKey key = new ContentKey(theBytes);
+        synchronized (_imageRefsShared) {
+
+            // Remove entries for cleared ImageRefs
+            for (Reference<? extends ImageRef> ref; (ref = _imageRefsQueue.poll()) != null; )
+                _imageRefsShared.remove(((SharedImageRef) ref)._key, ref);
+
+            // If already decoded, just return
+            SharedImageRef ref = _imageRefsShared.get(key);
+            ImageRef iref = ref != null ? ref.get() : null;
+            if (iref != null) return iref;
+
+            // Create ImageRef, add and return
+            iref = ImageRef.getImageRef(theBytes);
+            _imageRefsShared.put(key, new SharedImageRef(iref, key));
+            return iref;
+        }
+    }
+
+    /**
+     * Returns a new page for given page class.
+     */
+    private static SGPage createPage(Class aClass)
+    {
+        try { return (SGPage) aClass.getDeclaredConstructor().newInstance(); }
+        catch (ReflectiveOperationException e) { throw new RuntimeException(e); }
+    }
+
+    /**
+     * Returns whether given element name is for a page.
+     */
+    private boolean isPageElement(String aName)
+    {
+        Class cls = getClass(aName);
+        return cls != null && SGPage.class.isAssignableFrom(cls);
+    }
+
+    /**
+     * Returns a buffered input stream for given file.
+     */
+    private static InputStream getFileInputStream(File aFile)
+    {
+        try { return new BufferedInputStream(new FileInputStream(aFile)); }
+        catch (IOException e) { throw new UncheckedIOException(e); }
+    }
+
+    /**
+     * Returns whether given file holds a document in binary format (just reads the magic number).
+     */
+    private static boolean isBinaryFile(File aFile)
+    {
+        if (aFile.length() < 4) return false;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(aFile))) {
+            return in.readInt() == RMBinaryFormat.MAGIC;
+        }
+        catch (IOException e) { return false; }
+    }
+
+    /**
+     * Returns the bytes for given file.
+     */
+    private static byte[] getFileBytes(File aFile)
+    {
+        try { return Files.readAllBytes(aFile.toPath()); }
+        catch (IOException e) { throw new UncheckedIOException(e); }
+    }
+
+    /**
+     * Closes given stream, ignoring exceptions.
+     */
+    private static void closeQuietly(InputStream aStream)
+    {
+        try { aStream.close(); }
+        catch (IOException e) { }
+    }
+
+    /**
+     * Writes given document as XML to given stream, one page at a time, so that the full document XML is never
+     * held in memory. Output reads back as the same document as writeToXML(aDoc), but isn't byte for byte the same:
+     * Page and resource elements are written as standalone strings, so they aren't indented as children of the
+     * document element. The document element is written around them by splitting its string at a placeholder child
+     * element (PAGES_PLACEHOLDER). If PARALLEL_WRITE, pages are archived and resources encoded on worker threads, but
+     * are still written in order (and resources are added in page order, so output doesn't depend on thread
+     * scheduling).
+     */
+    public void writeToXMLStream(SGDoc aDoc, OutputStream aStream) throws IOException
+    {
+        // Get writer
+        Writer writer = new BufferedWriter(new OutputStreamWriter(aStream, StandardCharsets.UTF_8));
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+
+        // Get document element without pages (with placeholder where pages go) and split into start/end text
+        XMLElement docXML = aDoc.toXMLView(this);
+        docXML.add(new XMLElement(PAGES_PLACEHOLDER));
+        String docStr = docXML.getString();
+        int start = docStr.indexOf("<" + PAGES_PLACEHOLDER);
+        int end = docStr.indexOf('>', start) + 1;
+
+        // Write document start
+        writer.write(docStr, 0, start);
+
+        // Write pages (each page string is released after it is written)
+        writePages(aDoc, pageXML -> pageXML.getString(), pageStr -> {
+            writer.write(pageStr);
+            writer.write('\n');
+        });
+
+        // Write resources added by pages
+        for (String resStr : getResourceStrings()) {
+            writer.write(resStr);
+            writer.write('\n');
+        }
+
+        // Write document end
+        writer.write(docStr, end, docStr.length() - end);
+        writer.flush();
+    }
+
+    /**
+     * Writes given document in binary format to given stream (see RMBinaryFormat): Document element, then each page
+     * element, then resource bytes as blobs.
+     */
+    public void writeToBinaryStream(SGDoc aDoc, OutputStream aStream) throws IOException
+    {
+        // Get writer and write document element without pages
+        RMBinaryFormat.Writer writer = new RMBinaryFormat.Writer(aStream);
+        writer.writeDocElement(aDoc.toXMLView(this));
+
+        // Write pages (each page element is released after it is written)
+        writePages(aDoc, pageXML -> pageXML, pageXML -> writer.writePageElement(pageXML));
+
+        // Write resources added by document and pages as blobs
+        for (String name : getResourceNames())
+            writer.writeBlob(name, getResource(name));
+
+        // Finish
+        writer.finish();
+    }
+
+    /**
+     * Archives each page of given document, converts it with given function and passes it to given writer in page
+     * order. If PARALLEL_WRITE, pages are archived and converted on worker threads (a bounded number at a time).
+     */
+    private <T> void writePages(SGDoc aDoc, Function<XMLElement, T> aConverter, PageWriter<T> aWriter)
+        throws IOException
+    {
+        // Assign reference ids for document linked text in page order (before pages are archived)
+        addReferences(aDoc);
+
+        // If not parallel, just archive, convert and write each page
+        int pageCount = aDoc.getPageCount();
+        if (!PARALLEL_WRITE || pageCount < 2) {
+            for (int i = 0; i < pageCount; i++) {
+                XMLElement pageXML = toXML(aDoc.getChild(i), aDoc);
+                aWriter.write(aConverter.apply(pageXML));
+                fireProgress(i + 1, pageCount);
+            }
+            return;
+        }
+
+        // Iterate over pages: Keep window of pages archiving ahead on worker threads, then write next page when done
+        int window = Runtime.getRuntime().availableProcessors() * 2;
+        Deque<Future<RMArchiver>> futures = new ArrayDeque<>();
+        try {
+            for (int i = 0, next = 0; i < pageCount; i++) {
+                for ( ; next < pageCount && next < i + window; next++) {
+                    int index = next;
+                    futures.add(ForkJoinPool.commonPool().submit(() -> toXMLPage(aDoc, index)));
+                }
+                RMArchiver pageArchiver = futures.removeFirst().get();
+                XMLElement pageXML = addPageResources(pageArchiver);
+                aWriter.write(aConverter.apply(pageXML));
+                fireProgress(i + 1, pageCount);
+            }
+        }
+
+        // Handle exceptions: Cancel remaining and rethrow
+        catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new InterruptedIOException("RMArchiver.writePages: Interrupted");
+        }
+        catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * Archives page at given index with a new archiver that gets reference ids from this archiver (called on worker
+     * thread). Returns the page archiver, which holds page element and page resources (see addPageResources()).
+     */
+    private RMArchiver toXMLPage(SGDoc aDoc, int anIndex)
+    {
+        RMArchiver archiver = new RMArchiver();
+        archiver._refArchiver = this;
+        archiver._pageXML = archiver.toXML(aDoc.getChild(anIndex), aDoc);
+        return archiver;
+    }
+
+    /**
+     * Adds resources of given page archiver to this archiver (called in page order, so resource order and names don't
+     * depend on thread scheduling) and returns page element, with resource names updated where they changed.
+     */
+    private XMLElement addPageResources(RMArchiver aPageArchiver)
+    {
+        // Add page resources and get names that changed
+        Map<String, String> renames = new HashMap<>();
+        for (String name : aPageArchiver.getResourceNames()) {
+            String name2 = addResource(aPageArchiver.getResource(name), name);
+            if (!name2.equals(name))
+                renames.put(name, name2);
+        }
+
+        // Update resource names in page element and return
+        XMLElement pageXML = aPageArchiver._pageXML;
+        if (renames.size() > 0)
+            renameResources(pageXML, renames);
+        return pageXML;
+    }
+
+    /**
+     * Resets resource names in given element (and its children) for given map of old to new names.
+     */
+    private static void renameResources(XMLElement anElement, Map<String, String> theNames)
+    {
+        // If element references renamed resource, reset name
+        String rname = anElement.getAttributeValue("resource");
+        String rname2 = rname != null ? theNames.get(rname) : null;
+        if (rname2 != null) {
+            anElement.removeAttribute("resource");
+            anElement.add("resource", rname2);
+        }
+
+        // Recurse into children
+        for (int i = 0, iMax = anElement.size(); i < iMax; i++)
+            renameResources(anElement.get(i), theNames);
+    }
+
+    /**
+     * Assigns reference ids for linked text in given document in page order (as serial archival would), so that
+     * pages archived on worker threads get deterministic ids. Lazy pages with references are inflated first, since
+     * their archived ids are from the archiver that read (or dehydrated) them.
+     */
+    private void addReferences(SGDoc aDoc)
+    {
+        for (int i = 0, iMax = aDoc.getPageCount(); i < iMax; i++) {
+            SGPage page = (SGPage) aDoc.getChild(i);
+            if (page.isLazy() && page.isLazyReferencing())
+                page.inflate();
+            if (!page.isLazy())
+                addReferences(page);
+        }
+    }
+
+    /**
+     * Assigns reference ids for linked text in given view and its descendants (in archival order).
+     */
+    private void addReferences(SGView aView)
+    {
+        // If text with linked text, add reference for linked text (SGText.toXML() does this before SGLinkedText)
+        if (aView instanceof SGText && ((SGText) aView).getLinkedText() != null)
+            getReference(((SGText) aView).getLinkedText());
+        if (aView instanceof SGLinkedText)
+            getReference(aView, true);
+
+        // Recurse into children
+        for (int i = 0, iMax = aView.getChildCount(); i < iMax; i++)
+            addReferences(aView.getChild(i));
+    }
+
+    /**
+     * Returns the names of resources added to archiver (in order added).
+     */
+    private synchronized List<String> getResourceNames()
+    {
+        return new ArrayList<>(_resNames.values());
+    }
+
+    /**
+     * Returns the XML strings for resources added to archiver. If PARALLEL_WRITE, resources are encoded on worker
+     * threads (each with an archiver holding just that resource).
+     */
+    private List<String> getResourceStrings()
+    {
+        // If not parallel, get resource elements from this archiver (writeToXML() adds them to given element)
+        List<String> resStrings = new ArrayList<>();
+        if (!PARALLEL_WRITE) {
+            XMLElement resourcesXML = writeToXML(new ResourcesStub());
+            for (int i = 0, iMax = resourcesXML.size(); i < iMax; i++)
+                resStrings.add(resourcesXML.get(i).getString());
+            return resStrings;
+        }
+
+        // Encode each resource on worker threads and return strings in order
+        List<String> names = getResourceNames();
+        resStrings.addAll(names.parallelStream().map(name -> {
+            RMArchiver archiver = new RMArchiver();
+            archiver.addResource(getResource(name), name);
+            return archiver.writeToXML(new ResourcesStub()).get(0).getString();
+        }).collect(Collectors.toList()));
+        return resStrings;
+    }
+
+    /**
+     * An interface to write a page in writePages().
+     */
+    private interface PageWriter<T> {
+        void write(T aPage) throws IOException;
+    }
+
+    // The name of the placeholder element used to split the document element for streaming
+    private static final String PAGES_PLACEHOLDER = "rm-pages-placeholder";
+
+    /**
+     * An Archivable that provides an empty element for archiver to add resources to.
+     */
+    private static class ResourcesStub implements XMLArchiver.Archivable {
+
+        public XMLElement toXML(XMLArchiver anArchiver)  { return new XMLElement("resources"); }
+
+        public Object fromXML(XMLArchiver anArchiver, XMLElement anElement)  { return this; }
+    }
+
+    /**
+     * A weak reference to a shared ImageRef that remembers its key (so entry can be removed when cleared).
+     */
+    private static class SharedImageRef extends WeakReference<ImageRef> {
+
+        // The key
+        private ContentKey _key;
+
+        /** Creates SharedImageRef for given ImageRef and key. */
+        SharedImageRef(ImageRef anImageRef, ContentKey aKey)
+        {
+            super(anImageRef, _imageRefsQueue);
+            _key = aKey;
+        }
+    }
+
+    /**
+     * A hash map key for content bytes, using a SHA-256 digest (so the bytes themselves aren't retained).
+     */
+    private static class ContentKey {
+
+        // The digest and hash code
+        private byte[] _digest;
+        private int _hash;
+
+        /** Creates ContentKey for given bytes. */
+        ContentKey(byte[] theBytes)
+        {
+            try { _digest = MessageDigest.getInstance("SHA-256").digest(theBytes); }
+            catch (NoSuchAlgorithmException e) { throw new RuntimeException(e); }
+            _hash = Arrays.hashCode(_digest);
+        }
+
+        /** Standard equals implementation. */
+        public boolean equals(Object anObj)
+        {
+            return anObj instanceof ContentKey && Arrays.equals(((ContentKey) anObj)._digest, _digest);
+        }
+
+        /** Standard hashCode implementation. */
+        public int hashCode()  { return _hash; }
+    }
+
     /**
      * Creates the class map.
      */
@@ -59,56 +684,10 @@ public class RMArchiver extends XMLArchiver {
     }
 
     /**
-     * Creates the class map.
+     * Returns the shared class map (immutable).
      */
     public static Map<String, Class> getClassMapShared()
     {
-        // If already set, just return
-        if (_classMapRM != null) return _classMapRM;
-
-        // Create class map and add classes
-        Map cmap = new HashMap();
-
-        // Shape classes
-        cmap.put("arrow-head", SGLine.ArrowHead.class);
-        cmap.put("document", SGDoc.class);
-        cmap.put("flow-shape", SGParent.class);
-        cmap.put("image-shape", SGImage.class);
-        cmap.put("line", SGLine.class);
-        cmap.put("oval", SGOval.class);
-        cmap.put("page", SGPage.class);
-        cmap.put("polygon", SGPolygon.class);
-        cmap.put("rect", SGRect.class);
-        cmap.put("shape", SGParent.class);
-        cmap.put("spring-shape", SGSpringsView.class);
-        cmap.put("text", SGText.class);
-        cmap.put("linked-text", SGLinkedText.class);
-        cmap.put("scene3d", SGScene3D.class);
-
-        // Graphics
-        cmap.put("color", Color.class);
-        cmap.put("font", Font.class);
-        cmap.put("pgraph", TextLineStyle.class); // Was RMParagraph
-        cmap.put("xstring", RichText.class); // Was RMXString
-
-        // Strokes
-        cmap.put("stroke", RMArchivers.RMStrokeStub.class);
-        cmap.put("double-stroke", RMArchivers.RMStrokeStub.class);
-        cmap.put("border-stroke", Borders.EdgeBorder.class);
-
-        // Fills
-        cmap.put("fill", RMArchivers.RMFillStub.class);
-        cmap.put("gradient-fill", GradientPaint.class);
-        cmap.put("radial-fill", GradientPaint.class);
-        cmap.put("image-fill", RMArchivers.RMImageFillStub.class);
-
-        // Effects
-        cmap.put("blur-effect", BlurEffect.class);
-        cmap.put("shadow-effect", ShadowEffect.class);
-        cmap.put("reflection-effect", ReflectEffect.class);
-        cmap.put("emboss-effect", EmbossEffect.class);
-
-        // Return classmap
-        return _classMapRM = cmap;
+        return RMClassRegistry.getShared().getClassMap();
     }
 }
\ No newline at end of file
@@ -0,0 +1,477 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package rmdraw.scene;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import snap.util.XMLElement;
+
+/**
+ * This class encodes/decodes the archived element form of a document in a compact, versioned binary container.
+ *
+ * Layout: Header (magic, version), document element (without pages), page elements, resource blobs, string table,
+ * page table, blob table, then a fixed size trailer with section offsets (so it can be written as a stream and read
+ * with random access). Element/attribute names and string values are string table ids, numeric attribute values
+ * are stored as varints or doubles when that reproduces the XML attribute text exactly (so round-trip is lossless).
+ */
+public class RMBinaryFormat {
+
+    // The magic number ("RMDB") and current version
+    public static final int MAGIC = 0x524D4442;
+    public static final int VERSION = 1;
+
+    // The attribute value types
+    private static final int TYPE_STRING = 0, TYPE_INT = 1, TYPE_DOUBLE = 2;
+
+    // The size of the trailer
+    private static final int TRAILER_SIZE = 4 * 8 + 2 * 4;
+
+    /**
+     * Returns whether given buffer holds a document in binary format.
+     */
+    public static boolean isBinary(ByteBuffer aBuffer)
+    {
+        return aBuffer != null && aBuffer.limit() >= 8 + TRAILER_SIZE && aBuffer.getInt(0) == MAGIC;
+    }
+
+    /**
+     * Returns whether given bytes hold a document in binary format.
+     */
+    public static boolean isBinary(byte[] theBytes)
+    {
+        return theBytes != null && isBinary(ByteBuffer.wrap(theBytes));
+    }
+
+    /**
+     * A class to write document elements and resources to a stream.
+     */
+    public static class Writer {
+
+        // The output stream
+        private DataOutputStream _out;
+
+        // The current stream position
+        private long _pos;
+
+        // The string table
+        private List<String> _strings = new ArrayList<>();
+        private Map<String, Integer> _stringIds = new HashMap<>();
+
+        // The document element offset and the page and blob tables
+        private long _docOffset = -1;
+        private List<long[]> _pages = new ArrayList<>();
+        private List<Object[]> _blobs = new ArrayList<>();
+
+        // A buffer to encode elements
+        private ByteArrayOutputStream _buffer = new ByteArrayOutputStream();
+
+        /**
+         * Creates Writer for given stream and writes header.
+         */
+        public Writer(OutputStream aStream) throws IOException
+        {
+            _out = new DataOutputStream(new BufferedOutputStream(aStream));
+            _out.writeInt(MAGIC);
+            _out.writeInt(VERSION);
+            _pos = 8;
+        }
+
+        /**
+         * Writes the document element (without pages or resources).
+         */
+        public void writeDocElement(XMLElement anElement) throws IOException
+        {
+            _docOffset = _pos;
+            writeBytes(encodeElement(anElement));
+        }
+
+        /**
+         * Writes a page element.
+         */
+        public void writePageElement(XMLElement anElement) throws IOException
+        {
+            byte[] bytes = encodeElement(anElement);
+            _pages.add(new long[] { _pos, bytes.length });
+            writeBytes(bytes);
+        }
+
+        /**
+         * Writes a resource blob.
+         */
+        public void writeBlob(String aName, byte[] theBytes) throws IOException
+        {
+            _blobs.add(new Object[] { getStringId(aName), _pos, (long) theBytes.length });
+            writeBytes(theBytes);
+        }
+
+        /**
+         * Writes string table, page table, blob table and trailer and flushes stream.
+         */
+        public void finish() throws IOException
+        {
+            // Write string table
+            long stringsOffset = _pos;
+            ByteArrayOutputStream bout = new ByteArrayOutputStream();
+            writeVarInt(bout, _strings.size());
+            for (String str : _strings) {
+                byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(bout, bytes.length);
+                bout.write(bytes);
+            }
+            writeBytes(bout.toByteArray());
+
+            // Write page table
+            long pagesOffset = _pos;
+            _out.writeInt(_pages.size());
+            for (long[] page : _pages) {
+                _out.writeLong(page[0]);
+                _out.writeLong(page[1]);
+            }
+            _pos += 4 + _pages.size() * 16L;
+
+            // Write blob table
+            long blobsOffset = _pos;
+            _out.writeInt(_blobs.size());
+            for (Object[] blob : _blobs) {
+                _out.writeInt((Integer) blob[0]);
+                _out.writeLong((Long) blob[1]);
+                _out.writeLong((Long) blob[2]);
+            }
+            _pos += 4 + _blobs.size() * 20L;
+
+            // Write trailer
+            _out.writeLong(_docOffset);
+            _out.writeLong(pagesOffset);
+            _out.writeLong(blobsOffset);
+            _out.writeLong(stringsOffset);
+            _out.writeInt(VERSION);
+            _out.writeInt(MAGIC);
+            _out.flush();
+        }
+
+        /**
+         * Writes bytes to stream.
+         */
+        private void writeBytes(byte[] theBytes) throws IOException
+        {
+            _out.write(theBytes);
+            _pos += theBytes.length;
+        }
+
+        /**
+         * Encodes an element to bytes.
+         */
+        private byte[] encodeElement(XMLElement anElement)
+        {
+            _buffer.reset();
+            encodeElement(anElement, _buffer);
+            return _buffer.toByteArray();
+        }
+
+        /**
+         * Encodes an element: name, attributes, value, children.
+         */
+        private void encodeElement(XMLElement anElement, ByteArrayOutputStream aBuf)
+        {
+            // Write name
+            writeVarInt(aBuf, getStringId(anElement.getName()));
+
+            // Write attributes
+            int attrCount = anElement.getAttributeCount();
+            writeVarInt(aBuf, attrCount);
+            for (int i = 0; i < attrCount; i++) {
+                String name = anElement.getAttribute(i).getName();
+                String value = anElement.getAttribute(i).getValue();
+                writeVarInt(aBuf, getStringId(name));
+                encodeValue(value, aBuf);
+            }
+
+            // Write value
+            String value = anElement.getValue();
+            if (value == null) aBuf.write(0);
+            else {
+                aBuf.write(1);
+                writeVarInt(aBuf, getStringId(value));
+            }
+
+            // Write children
+            int childCount = anElement.size();
+            writeVarInt(aBuf, childCount);
+            for (int i = 0; i < childCount; i++)
+                encodeElement(anElement.get(i), aBuf);
+        }
+
+        /**
+         * Encodes an attribute value as int or double if that reproduces string exactly, otherwise as string id.
+         */
+        private void encodeValue(String aValue, ByteArrayOutputStream aBuf)
+        {
+            // Handle int
+            if (isIntString(aValue)) {
+                aBuf.write(TYPE_INT);
+                writeVarLong(aBuf, zigZag(Long.parseLong(aValue)));
+                return;
+            }
+
+            // Handle double
+            if (isDoubleString(aValue)) {
+                aBuf.write(TYPE_DOUBLE);
+                long bits = Double.doubleToLongBits(Double.parseDouble(aValue));
+                for (int i = 56; i >= 0; i -= 8)
+                    aBuf.write((int) (bits >>> i));
+                return;
+            }
+
+            // Handle string
+            aBuf.write(TYPE_STRING);
+            writeVarInt(aBuf, getStringId(aValue));
+        }
+
+        /**
+         * Returns the string table id for given string.
+         */
+        private int getStringId(String aStr)
+        {
+            Integer id = _stringIds.get(aStr);
+            if (id == null) {
+                _stringIds.put(aStr, id = _strings.size());
+                _strings.add(aStr);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * A class to read document elements and resources from a buffer. Reads are synchronized
+     * since they share buffer position (lazy pages can be read by a background save while editor inflates others).
+     */
+    public static class Reader {
+
+        // The buffer
+        private ByteBuffer _buf;
+
+        // The string table
+        private String[] _strings;
+
+        // The document element offset
+        private int _docOffset;
+
+        // The page offsets
+        private int[] _pageOffsets;
+
+        // The blob offsets and lengths by name
+        private Map<String, int[]> _blobs = new LinkedHashMap<>();
+
+        /**
+         * Creates Reader for given buffer and reads trailer and tables.
+         */
+        public Reader(ByteBuffer aBuffer)
+        {
+            // Check header
+            _buf = aBuffer;
+            if (!isBinary(aBuffer))
+                throw new RuntimeException("RMBinaryFormat.Reader: Not a binary document");
+            int version = _buf.getInt(4);
+            if (version > VERSION)
+                throw new RuntimeException("RMBinaryFormat.Reader: Unsupported version " + version);
+
+            // Read trailer
+            int trailer = _buf.limit() - TRAILER_SIZE;
+            _docOffset = (int) _buf.getLong(trailer);
+            int pagesOffset = (int) _buf.getLong(trailer + 8);
+            int blobsOffset = (int) _buf.getLong(trailer + 16);
+            int stringsOffset = (int) _buf.getLong(trailer + 24);
+
+            // Read string table
+            _buf.position(stringsOffset);
+            _strings = new String[readVarInt()];
+            for (int i = 0; i < _strings.length; i++) {
+                int len = readVarInt();
+                byte[] bytes = new byte[len];
+                _buf.get(bytes);
+                _strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            // Read page table
+            _pageOffsets = new int[_buf.getInt(pagesOffset)];
+            for (int i = 0; i < _pageOffsets.length; i++)
+                _pageOffsets[i] = (int) _buf.getLong(pagesOffset + 4 + i * 16);
+
+            // Read blob table
+            for (int i = 0, iMax = _buf.getInt(blobsOffset); i < iMax; i++) {
+                int entry = blobsOffset + 4 + i * 20;
+                String name = _strings[_buf.getInt(entry)];
+                _blobs.put(name, new int[] { (int) _buf.getLong(entry + 4), (int) _buf.getLong(entry + 12) });
+            }
+        }
+
+        /**
+         * Returns the document element (without pages or resources).
+         */
+        public synchronized XMLElement getDocElement()
+        {
+            _buf.position(_docOffset);
+            return decodeElement(false);
+        }
+
+        /**
+         * Returns the number of pages.
+         */
+        public int getPageCount()
+        {
+            return _pageOffsets.length;
+        }
+
+        /**
+         * Returns the page element at given index (or just its attributes).
+         */
+        public synchronized XMLElement getPageElement(int anIndex, boolean attrsOnly)
+        {
+            _buf.position(_pageOffsets[anIndex]);
+            return decodeElement(attrsOnly);
+        }
+
+        /**
+         * Returns the resource names.
+         */
+        public Set<String> getBlobNames()
+        {
+            return _blobs.keySet();
+        }
+
+        /**
+         * Returns the resource bytes for given name.
+         */
+        public synchronized byte[] getBlob(String aName)
+        {
+            int[] blob = _blobs.get(aName);
+            if (blob == null) return null;
+            byte[] bytes = new byte[blob[1]];
+            _buf.position(blob[0]);
+            _buf.get(bytes);
+            return bytes;
+        }
+
+        /**
+         * Decodes an element at current position.
+         */
+        private XMLElement decodeElement(boolean attrsOnly)
+        {
+            // Read name and attributes
+            XMLElement e = new XMLElement(_strings[readVarInt()]);
+            for (int i = 0, iMax = readVarInt(); i < iMax; i++) {
+                String name = _strings[readVarInt()];
+                e.add(name, decodeValue());
+            }
+            if (attrsOnly)
+                return e;
+
+            // Read value
+            if (_buf.get() != 0)
+                e.setValue(_strings[readVarInt()]);
+
+            // Read children
+            for (int i = 0, iMax = readVarInt(); i < iMax; i++)
+                e.add(decodeElement(false));
+            return e;
+        }
+
+        /**
+         * Decodes an attribute value at current position.
+         */
+        private String decodeValue()
+        {
+            int type = _buf.get();
+            switch (type) {
+                case TYPE_INT: return Long.toString(unZigZag(readVarLong()));
+                case TYPE_DOUBLE: return Double.toString(_buf.getDouble());
+                default: return _strings[readVarInt()];
+            }
+        }
+
+        /**
+         * Reads a varint at current position.
+         */
+        private int readVarInt()
+        {
+            return (int) readVarLong();
+        }
+
+        /**
+         * Reads a varlong at current position.
+         */
+        private long readVarLong()
+        {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = _buf.get();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+        }
+    }
+
+    /**
+     * Returns whether string is an int in canonical form (so Long.toString() gives same string back).
+     */
+    private static boolean isIntString(String aStr)
+    {
+        int len = aStr.length();
+        if (len == 0 || len > 18) return false;
+        int start = aStr.charAt(0) == '-' ? 1 : 0;
+        if (start == len) return false;
+        if (aStr.charAt(start) == '0' && len > start + 1) return false;
+        if (start == 1 && len == 2 && aStr.charAt(1) == '0') return false;
+        for (int i = start; i < len; i++) {
+            char c = aStr.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether string is a double in canonical form (so Double.toString() gives same string back).
+     */
+    private static boolean isDoubleString(String aStr)
+    {
+        // Quick check for digits, minus and single dot
+        int len = aStr.length();
+        if (len < 3 || len > 24) return false;
+        for (int i = 0; i < len; i++) {
+            char c = aStr.charAt(i);
+            if (!(c >= '0' && c <= '9' || c == '.' || c == '-' || c == 'E')) return false;
+        }
+
+        // Check round trip
+        try { return Double.toString(Double.parseDouble(aStr)).equals(aStr); }
+        catch (NumberFormatException e) { return false; }
+    }
+
+    /**
+     * Writes a varint.
+     */
+    private static void writeVarInt(ByteArrayOutputStream aBuf, int aValue)
+    {
+        writeVarLong(aBuf, aValue & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Writes a varlong.
+     */
+    private static void writeVarLong(ByteArrayOutputStream aBuf, long aValue)
+    {
+        while ((aValue & ~0x7FL) != 0) {
+            aBuf.write((int) (aValue & 0x7F) | 0x80);
+            aValue >>>= 7;
+        }
+        aBuf.write((int) aValue);
+    }
+
+    /** ZigZag encodes a long (so small negative numbers stay small). */
+    private static long zigZag(long aValue)  { return (aValue << 1) ^ (aValue >> 63); }
+
+    /** ZigZag decodes a long. */
+    private static long unZigZag(long aValue)  { return (aValue >>> 1) ^ -(aValue & 1); }
+}
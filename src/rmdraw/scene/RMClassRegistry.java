@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package rmdraw.scene;
+import java.util.*;
+import snap.gfx.*;
+import snap.text.RichText;
+import snap.text.TextLineStyle;
+
+/**
+ * This class holds the mapping of archived element names to classes for RMArchiver. The shared registry is built
+ * eagerly and is immutable once built, so it can be used safely by concurrent loads. Custom element types can be
+ * added with ServiceLoader by providing an implementation of RMClassRegistry.Provider.
+ */
+public class RMClassRegistry {
+
+    // The element classes by element name
+    private Map<String, Class> _classes = new HashMap<>();
+
+    // Whether registry is sealed
+    private boolean _sealed;
+
+    // The shared registry
+    private static final RMClassRegistry _shared = createShared();
+
+    /**
+     * An interface for classes that register custom element types (loaded with ServiceLoader).
+     */
+    public interface Provider {
+
+        /** Called to add element types to given registry. */
+        void addClasses(RMClassRegistry aRegistry);
+    }
+
+    /**
+     * Adds a class for given element name.
+     */
+    public void addClass(String aName, Class aClass)
+    {
+        if (_sealed) throw new IllegalStateException("RMClassRegistry.addClass: Registry is immutable");
+        _classes.put(aName, aClass);
+    }
+
+    /**
+     * Returns the class for given element name.
+     */
+    public Class getClass(String aName)  { return _classes.get(aName); }
+
+    /**
+     * Returns the classes by element name.
+     */
+    public Map<String, Class> getClassMap()  { return _classes; }
+
+    /**
+     * Makes registry immutable.
+     */
+    private void seal()
+    {
+        _classes = Collections.unmodifiableMap(_classes);
+        _sealed = true;
+    }
+
+    /**
+     * Returns the shared registry.
+     */
+    public static RMClassRegistry getShared()  { return _shared; }
+
+    /**
+     * Returns whether given provider iterator has another provider (false if provider configuration can't be read).
+     */
+    private static boolean hasNextProvider(Iterator<Provider> theProviders)
+    {
+        try { return theProviders.hasNext(); }
+        catch (ServiceConfigurationError e) {
+            System.err.println("RMClassRegistry: Can't read providers: " + e);
+            return false;
+        }
+    }
+
+    /**
+     * Adds element types from next provider to given registry. Provider adds to its own registry first, so a provider
+     * that fails (to load or while adding) is skipped entirely instead of breaking the shared registry.
+     */
+    private static void addProviderClasses(RMClassRegistry aRegistry, Iterator<Provider> theProviders)
+    {
+        // Get next provider and add its classes to new registry
+        RMClassRegistry reg = new RMClassRegistry();
+        try { theProviders.next().addClasses(reg); }
+        catch (ServiceConfigurationError | RuntimeException | LinkageError e) {
+            System.err.println("RMClassRegistry: Skipping failed provider: " + e);
+            return;
+        }
+
+        // Add provider classes to given registry
+        for (Map.Entry<String, Class> entry : reg._classes.entrySet())
+            aRegistry.addClass(entry.getKey(), entry.getValue());
+    }
+
+    /**
+     * Creates the shared registry.
+     */
+    private static RMClassRegistry createShared()
+    {
+        RMClassRegistry reg = new RMClassRegistry();
+
+        // Shape classes
+        reg.addClass("arrow-head", SGLine.ArrowHead.class);
+        reg.addClass("document", SGDoc.class);
+        reg.addClass("flow-shape", SGParent.class);
+        reg.addClass("image-shape", SGImage.class);
+        reg.addClass("line", SGLine.class);
+        reg.addClass("oval", SGOval.class);
+        reg.addClass("page", SGPage.class);
+        reg.addClass("polygon", SGPolygon.class);
+        reg.addClass("rect", SGRect.class);
+        reg.addClass("shape", SGParent.class);
+        reg.addClass("spring-shape", SGSpringsView.class);
+        reg.addClass("text", SGText.class);
+        reg.addClass("linked-text", SGLinkedText.class);
+        reg.addClass("scene3d", SGScene3D.class);
+        reg.addClass("symbol-view", SGSymbolView.class);
+        reg.addClass("symbol", SGSymbol.class);
+
+        // Graphics
+        reg.addClass("color", Color.class);
+        reg.addClass("font", Font.class);
+        reg.addClass("pgraph", TextLineStyle.class); // Was RMParagraph
+        reg.addClass("xstring", RichText.class); // Was RMXString
+
+        // Strokes
+        reg.addClass("stroke", RMArchivers.RMStrokeStub.class);
+        reg.addClass("double-stroke", RMArchivers.RMStrokeStub.class);
+        reg.addClass("border-stroke", Borders.EdgeBorder.class);
+
+        // Fills
+        reg.addClass("fill", RMArchivers.RMFillStub.class);
+        reg.addClass("gradient-fill", GradientPaint.class);
+        reg.addClass("radial-fill", GradientPaint.class);
+        reg.addClass("image-fill", RMArchivers.RMImageFillStub.class);
+
+        // Effects
+        reg.addClass("blur-effect", BlurEffect.class);
+        reg.addClass("shadow-effect", ShadowEffect.class);
+        reg.addClass("reflection-effect", ReflectEffect.class);
+        reg.addClass("emboss-effect", EmbossEffect.class);
+
+        // Add custom element types from providers
+        Iterator<Provider> providers = ServiceLoader.load(Provider.class, RMClassRegistry.class.getClassLoader())
+            .iterator();
+        while (hasNextProvider(providers))
+            addProviderClasses(reg, providers);
+
+        // Seal and return
+        reg.seal();
+        return reg;
+    }
+}
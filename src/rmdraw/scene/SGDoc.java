@@ -3,11 +3,13 @@
  */
 package rmdraw.scene;
 import java.util.*;
-import java.io.File;
+import java.io.*;
 
 import snap.geom.Rect;
 import snap.geom.Size;
 import snap.gfx.*;
+import snap.props.PropChange;
+import snap.props.Undoer;
 import snap.util.*;
 import snap.web.WebURL;
 
@@ -67,9 +69,18 @@ public class SGDoc extends SGParent {
     // Whether output file formats should compress (PDF really)
     private boolean _compress = true;
 
+    // The symbols defined in document, by name
+    private Map<String, SGSymbol> _symbols = new LinkedHashMap<>();
+
+    // The index of document views by name and class (created on first lookup)
+    private SGDocIndex _index;
+
     // Locale
     public static Locale _locale = Locale.ENGLISH;  // Used by date/number formats    
 
+    // Whether pages read from XML are unarchived lazily (on first getPage(), layout while showing or lookup of views)
+    public static boolean LAZY_PAGES = true;
+
     // Page Layout Enumerations
     public enum PageLayout {Single, Double, Quadruple, Facing, Continuous, ContinuousDouble}
 
@@ -78,6 +89,7 @@ public class SGDoc extends SGParent {
 
     // Constants for property changes
     public static final String SelPageIndex_Prop = "SelPageIndex";
+    public static final String Symbols_Prop = "Symbols";
 
     /**
      * Creates a plain empty document. It's really only used by the archiver.
@@ -162,11 +174,75 @@ public class SGDoc extends SGParent {
     }
 
     /**
-     * Returns the page at the given index.
+     * Returns the page at the given index (unarchiving contents if lazy, which doesn't fire changes).
      */
     public SGPage getPage(int anIndex)
     {
-        return (SGPage) getChild(anIndex);
+        SGPage page = (SGPage) getChild(anIndex);
+        page.inflate();
+        return page;
+    }
+
+    /**
+     * Returns whether any lazy pages are showing in SceneGraph visible rect.
+     */
+    public boolean isLazyPagesShowing()
+    {
+        Rect visRect = getVisRect();
+        if (visRect == null) return false;
+        for (int i = 0, iMax = getChildCount(); i < iMax; i++) {
+            SGPage page = (SGPage) getChild(i);
+            if (page.isLazy() && page.getFrame().intersectsRect(visRect))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Inflates lazy pages that are showing in SceneGraph visible rect (called by layout and by viewer after scroll).
+     */
+    public void inflateShowingPages()
+    {
+        Rect visRect = getVisRect();
+        if (visRect == null) return;
+        for (int i = 0, iMax = getChildCount(); i < iMax; i++) {
+            SGPage page = (SGPage) getChild(i);
+            if (page.isLazy() && page.getFrame().intersectsRect(visRect))
+                page.inflate();
+        }
+    }
+
+    /**
+     * Returns the SceneGraph visible rect in document coords (null if not showing).
+     */
+    private Rect getVisRect()
+    {
+        SceneGraph sceneGraph = getSceneGraph();
+        Rect visRect = sceneGraph != null ? sceneGraph.getVisRect() : null;
+        return visRect != null && !visRect.isEmpty() ? visRect : null;
+    }
+
+    /**
+     * Dehydrates pages that aren't selected or showing (only if there are no undos referencing page views).
+     * Returns the number of pages dehydrated.
+     */
+    public int dehydratePages()
+    {
+        // If undos, just return
+        Undoer undoer = getUndoer();
+        if (undoer != null && undoer.hasUndos()) return 0;
+
+        // Iterate over pages and dehydrate those not selected or showing
+        Rect visRect = getVisRect();
+        int count = 0;
+        for (int i = 0, iMax = getChildCount(); i < iMax; i++) {
+            SGPage page = (SGPage) getChild(i);
+            if (page.isLazy() || i == _selIndex) continue;
+            if (visRect != null && page.getFrame().intersectsRect(visRect)) continue;
+            if (page.dehydrate())
+                count++;
+        }
+        return count;
     }
 
     /**
@@ -245,6 +321,15 @@ public class SGDoc extends SGParent {
         if (getWidth() == 0) setBestSize();
     }
 
+    /**
+     * Override to make sure document has size.
+     */
+    public void addChildren(ChildrenAt theChildren)
+    {
+        super.addChildren(theChildren);
+        if (getWidth() == 0) setBestSize();
+    }
+
     /**
      * Add the pages in the given document to this document (at end) and clears the pages list in the given document.
      */
@@ -255,6 +340,148 @@ public class SGDoc extends SGParent {
             addPage((SGPage) page);
     }
 
+    /**
+     * Returns the symbol for given name.
+     */
+    public SGSymbol getSymbol(String aName)
+    {
+        return _symbols.get(aName);
+    }
+
+    /**
+     * Returns the symbols defined in document.
+     */
+    public List<SGSymbol> getSymbols()
+    {
+        return new ArrayList<>(_symbols.values());
+    }
+
+    /**
+     * Adds a symbol to document (replacing any symbol with same name).
+     */
+    public void addSymbol(SGSymbol aSymbol)
+    {
+        SGSymbol old = _symbols.put(aSymbol.getName(), aSymbol);
+        if (old == aSymbol) return;
+        repaint();
+        firePropChange(Symbols_Prop, old, aSymbol);
+    }
+
+    /**
+     * Removes the symbol with given name from document.
+     */
+    public SGSymbol removeSymbol(String aName)
+    {
+        SGSymbol symbol = _symbols.remove(aName);
+        if (symbol == null) return null;
+        repaint();
+        firePropChange(Symbols_Prop, symbol, null);
+        return symbol;
+    }
+
+    /**
+     * Returns the index of document views by name and class (created on first call and kept current after that).
+     */
+    public SGDocIndex getIndex()
+    {
+        if (_index != null) return _index;
+        return _index = new SGDocIndex(this);
+    }
+
+    /**
+     * Returns the document views with given name (in no particular order).
+     */
+    public List<SGView> getViewsWithName(String aName)
+    {
+        SGDocIndex index = getIndex();
+        index.inflateLazyPagesWithName(aName);
+        return index.getViewsWithName(aName);
+    }
+
+    /**
+     * Returns the document views with given class, including subclasses (in no particular order).
+     */
+    public <T> List<T> getViewsWithClass(Class<T> aClass)
+    {
+        SGDocIndex index = getIndex();
+        index.inflateLazyPagesWithClass(aClass);
+        return index.getViewsWithClass(aClass);
+    }
+
+    /**
+     * Override to find child with name from index.
+     */
+    public SGView getChildWithName(String aName)
+    {
+        return getIndex().getFirstFound(getViewsWithName(aName));
+    }
+
+    /**
+     * Override to find child with class from index.
+     */
+    public <T> T getChildWithClass(Class<T> aClass)
+    {
+        return getIndex().getFirstFound(getViewsWithClass(aClass));
+    }
+
+    /**
+     * Override to find children with class from index.
+     */
+    public <T extends SGView> List<T> getChildrenWithClass(Class<T> aClass, List aList)
+    {
+        // Get views with class, minus those inside another view with class (hierarchy search doesn't descend into them)
+        List<T> views = getViewsWithClass(aClass);
+        views.removeIf(view -> getParentWithClass(view, aClass) != null);
+
+        // Sort in hierarchy order, add to list and return
+        getIndex().sortInDocOrder(views);
+        aList.addAll(views);
+        return aList;
+    }
+
+    /**
+     * Returns the first parent of given view (below document) with given class.
+     */
+    private SGParent getParentWithClass(SGView aView, Class aClass)
+    {
+        for (SGParent par = aView.getParent(); par != null && par != this; par = par.getParent())
+            if (aClass.isInstance(par))
+                return par;
+        return null;
+    }
+
+    /**
+     * Called when view is added to document hierarchy to update index.
+     */
+    protected void viewWasAdded(SGView aView)
+    {
+        if (_index != null) _index.addView(aView);
+    }
+
+    /**
+     * Called when view is removed from document hierarchy to update index.
+     */
+    protected void viewWasRemoved(SGView aView)
+    {
+        if (_index != null) _index.removeView(aView);
+    }
+
+    /**
+     * Called when page becomes lazy or is inflated to update index.
+     */
+    protected void pageLazyDidChange(SGPage aPage)
+    {
+        if (_index != null) _index.setPageLazy(aPage);
+    }
+
+    /**
+     * Called when document view name changes to update index.
+     */
+    protected void viewNameDidChange(SGView aView, String anOldName, String aNewName)
+    {
+        if (_index != null) _index.setViewName(aView, anOldName, aNewName);
+    }
+
     /**
      * Returns the selected page of document.
      */
@@ -555,7 +782,7 @@ public class SGDoc extends SGParent {
 
         // Set size of all doc pages
         for (int i = 0, iMax = getPageCount(); i < iMax; i++)
-            getPage(i).setSize(aWidth, aHeight);
+            getChild(i).setSize(aWidth, aHeight);
 
         // Fire property change and relayout parent
         firePropChange("PageSize", oldVal, new Size(aWidth, aHeight));
@@ -631,7 +858,57 @@ public class SGDoc extends SGParent {
      */
     public byte[] getBytes()
     {
-        return getXML().getBytes();
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        try { writeXML(bout); }
+        catch (IOException e) { throw new RuntimeException(e); }
+        return bout.toByteArray();
+    }
+
+    /**
+     * Writes the document XML to given stream (page by page, without building the full document XML).
+     */
+    public void writeXML(OutputStream aStream) throws IOException
+    {
+        writeXML(aStream, new RMArchiver());
+    }
+
+    /**
+     * Writes the document XML to given stream with given archiver.
+     */
+    public void writeXML(OutputStream aStream, RMArchiver anArchiver) throws IOException
+    {
+        layoutDeep();
+        resolvePageReferences();
+        anArchiver.writeToXMLStream(this, aStream);
+    }
+
+    /**
+     * Returns the document as a binary format byte array.
+     */
+    public byte[] getBytesBinary()
+    {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        try { writeBinary(bout); }
+        catch (IOException e) { throw new RuntimeException(e); }
+        return bout.toByteArray();
+    }
+
+    /**
+     * Writes the document in binary format to given stream (see RMBinaryFormat).
+     */
+    public void writeBinary(OutputStream aStream) throws IOException
+    {
+        writeBinary(aStream, new RMArchiver());
+    }
+
+    /**
+     * Writes the document in binary format to given stream with given archiver.
+     */
+    public void writeBinary(OutputStream aStream, RMArchiver anArchiver) throws IOException
+    {
+        layoutDeep();
+        resolvePageReferences();
+        anArchiver.writeToBinaryStream(this, aStream);
     }
 
     /**
@@ -660,8 +937,14 @@ public class SGDoc extends SGParent {
             SnapUtils.writeBytes(getBytesJPEG(), aPath);
         else if (path.endsWith(".png"))
             SnapUtils.writeBytes(getBytesPNG(), aPath);
-        else if (path.endsWith(".rpt") || path.endsWith(".xml"))
-            SnapUtils.writeBytes(getXML().getBytes(), aPath);
+        else if (path.endsWith(".rpt") || path.endsWith(".xml")) {
+            try (OutputStream out = new FileOutputStream(aPath)) { writeXML(out); }
+            catch (IOException e) { throw new RuntimeException(e); }
+        }
+        else if (path.endsWith(".rptb")) {
+            try (OutputStream out = new FileOutputStream(aPath)) { writeBinary(out); }
+            catch (IOException e) { throw new RuntimeException(e); }
+        }
     }
 
     /**
@@ -709,7 +992,7 @@ public class SGDoc extends SGParent {
         // Handle PageLayout Single: Iterate over pages, set location to zero and set current page to visible
         if (getPageLayout() == SGDoc.PageLayout.Single) {
             for (int i = 0, iMax = getChildCount(); i < iMax; i++) {
-                SGPage page = getPage(i);
+                SGView page = getChild(i);
                 boolean showing = i == selIndex;
                 page.setXY(showing ? 0 : offscreen, 0);
             }
@@ -718,7 +1001,7 @@ public class SGDoc extends SGParent {
         // Handle PageLayout Double: Iterate over pages, set location of alternating pages to zero/page-width
         else if (getPageLayout() == SGDoc.PageLayout.Double) {
             for (int i = 0, iMax = getChildCount(); i < iMax; i += 2) {
-                SGPage page1 = getPage(i), page2 = i + 1 < iMax ? getPage(i + 1) : null;
+                SGView page1 = getChild(i), page2 = i + 1 < iMax ? getChild(i + 1) : null;
                 boolean showing = i == selIndex || i + 1 == selIndex;
                 page1.setXY(showing ? 0 : offscreen, 0);
                 if (page2 != null)
@@ -730,12 +1013,12 @@ public class SGDoc extends SGParent {
         else if (getPageLayout() == SGDoc.PageLayout.Facing) {
 
             // Set location of page 1
-            SGPage page = getPage(0);
+            SGView page = getChild(0);
             page.setXY(selIndex == 0 ? getPageSize().width : offscreen, 0);
 
             // Iterate over pages, set location of alternating pages to zero/page-width, set current pages to visible
             for (int i = 1, iMax = getChildCount(); i < iMax; i += 2) {
-                SGPage page1 = getPage(i), page2 = i + 1 < iMax ? getPage(i + 1) : null;
+                SGView page1 = getChild(i), page2 = i + 1 < iMax ? getChild(i + 1) : null;
                 boolean showing = i == selIndex || i + 1 == selIndex;
                 page1.setXY(showing ? 0 : offscreen, 0);
                 if (page2 != null)
@@ -747,11 +1030,14 @@ public class SGDoc extends SGParent {
         else if (getPageLayout() == SGDoc.PageLayout.Continuous) {
             float y = 0;
             for (int i = 0, iMax = getChildCount(); i < iMax; i++) {
-                SGPage page = getPage(i);
+                SGView page = getChild(i);
                 page.setXY(0, y);
                 y += page.getHeight() + 10;
             }
         }
+
+        // Make sure showing pages are unarchived (here instead of in paint, since it adds views)
+        inflateShowingPages();
     }
 
     /**
@@ -794,12 +1080,84 @@ public class SGDoc extends SGParent {
         return new RMArchiver().writeToXML(this);
     }
 
+    /**
+     * Returns a copy of document that can be archived on another thread while this document keeps changing. Only
+     * changed pages are deep cloned: Lazy pages share their archived source, and pages that haven't changed since
+     * they were last saved (while document was listened to) share the archived page from that save.
+     */
+    public SGDoc getSnapshot()
+    {
+        layoutDeep();
+        SGDoc clone = clone();
+        for (int i = 0, iMax = getChildCount(); i < iMax; i++)
+            clone.addChild(((SGPage) getChild(i)).getSnapshotCopy());
+        return clone;
+    }
+
+    /**
+     * Archives the pages of this snapshot that were cloned from changed document pages into compact page XML, so the
+     * document can share them in next snapshot if they don't change again (called on save thread before writing).
+     */
+    public void dehydrateSnapshotPages()
+    {
+        for (int i = 0, iMax = getChildCount(); i < iMax; i++)
+            ((SGPage) getChild(i)).dehydrateSnapshotCopy();
+    }
+
+    /**
+     * Called when given snapshot of this document has been saved: Pages that haven't changed since snapshot keep the
+     * archived pages from snapshot (see dehydrateSnapshotPages()).
+     */
+    public void snapshotSaved(SGDoc aSnapshot)
+    {
+        for (int i = 0, iMax = aSnapshot.getChildCount(); i < iMax; i++)
+            ((SGPage) aSnapshot.getChild(i)).snapshotCopySaved();
+    }
+
+    /**
+     * Override to count page change (see SGPage.getSnapshotCopy()).
+     */
+    void childDidPropChange(PropChange aPC)
+    {
+        if (aPC.getSource() instanceof SGPage)
+            ((SGPage) aPC.getSource())._changeCount++;
+        super.childDidPropChange(aPC);
+    }
+
+    /**
+     * Override to return null for Symbols (changes hold the symbol added or removed).
+     */
+    public Object getPropValue(String aPropName)
+    {
+        if (aPropName == Symbols_Prop) return null;
+        return super.getPropValue(aPropName);
+    }
+
+    /**
+     * Override to handle Symbols change (for undo).
+     */
+    public void processPropChange(PropChange aPC, Object oldVal, Object newVal)
+    {
+        String pname = aPC.getPropName();
+        if (pname == Symbols_Prop) {
+            if (newVal != null) addSymbol((SGSymbol) newVal);
+            else removeSymbol(((SGSymbol) oldVal).getName());
+        }
+        else super.processPropChange(aPC, oldVal, newVal);
+    }
+
     /**
      * Copies basic document attributes (shallow copy only - no children or pages).
      */
     public SGDoc clone()
     {
         SGDoc clone = (SGDoc) super.clone();
+        clone._index = null;
+
+        // Copy symbols (with copies of symbol views)
+        clone._symbols = new LinkedHashMap<>();
+        for (SGSymbol symbol : _symbols.values())
+            clone._symbols.put(symbol.getName(), symbol.clone());
         return clone;
     }
 
@@ -840,6 +1198,14 @@ public class SGDoc extends SGParent {
         if (!_paginate) e.add("paginate", _paginate);
         if (!_compress) e.add("compress", false);
 
+        // Archive symbols (before pages, so they are defined once, ahead of the instances that use them)
+        if (_symbols.size() > 0) {
+            XMLElement symbolsXML = new XMLElement("symbols");
+            for (SGSymbol symbol : _symbols.values())
+                symbolsXML.add(symbol.toXML(anArchiver));
+            e.add(symbolsXML);
+        }
+
         // Return element
         return e;
     }
@@ -851,7 +1217,7 @@ public class SGDoc extends SGParent {
     {
         // Archive pages
         for (int i = 0, iMax = getPageCount(); i < iMax; i++)
-            anElement.add(anArchiver.toXML(getPage(i), this));
+            anElement.add(anArchiver.toXML(getChild(i), this));
     }
 
     /**
@@ -885,6 +1251,16 @@ public class SGDoc extends SGParent {
         setNullString(anElement.getAttributeValue("null-string", ""));
         setPaginate(anElement.getAttributeBoolValue("paginate", true));
         setCompress(anElement.getAttributeBoolValue("compress", true));
+
+        // Unarchive symbols
+        _symbols.clear();
+        XMLElement symbolsXML = anElement.get("symbols");
+        if (symbolsXML != null) {
+            for (int i = 0, iMax = symbolsXML.size(); i < iMax; i++) {
+                SGSymbol symbol = new SGSymbol().fromXML(anArchiver, symbolsXML.get(i));
+                addSymbol(symbol);
+            }
+        }
     }
 
     /**
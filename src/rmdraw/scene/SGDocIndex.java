@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package rmdraw.scene;
+import java.util.*;
+import snap.util.XMLElement;
+
+/**
+ * This class maintains a live index of the views in a document by name and by class, so name and class lookups don't
+ * have to walk the view hierarchy. The document keeps it current as views are added, removed and renamed (see
+ * SGView.setParent() and SGView.setName()). Lazy pages are indexed by the view names and classes in their archived
+ * page element, so a lookup only inflates the lazy pages that have matching views.
+ */
+public class SGDocIndex {
+
+    // The document
+    private SGDoc _doc;
+
+    // The views by name
+    private Map<String, Set<SGView>> _names = new HashMap<>();
+
+    // The views by class
+    private Map<Class, Set<SGView>> _classes = new HashMap<>();
+
+    // The lazy pages by names and classes of views in archived page element
+    private Map<String, Set<SGView>> _lazyNames = new HashMap<>();
+    private Map<Class, Set<SGView>> _lazyClasses = new HashMap<>();
+
+    // The names and classes of views in archived page element of lazy pages
+    private Map<SGPage, Set<String>> _lazyPageNames = new IdentityHashMap<>();
+    private Map<SGPage, Set<Class>> _lazyPageClasses = new IdentityHashMap<>();
+
+    /**
+     * Creates SGDocIndex for given document (and indexes current document views).
+     */
+    public SGDocIndex(SGDoc aDoc)
+    {
+        _doc = aDoc;
+        for (int i = 0, iMax = aDoc.getChildCount(); i < iMax; i++)
+            addView(aDoc.getChild(i));
+    }
+
+    /**
+     * Returns the views with given name (in no particular order).
+     */
+    public List<SGView> getViewsWithName(String aName)
+    {
+        Set<SGView> views = _names.get(aName);
+        return views != null ? new ArrayList<>(views) : new ArrayList<>();
+    }
+
+    /**
+     * Returns the views with given class, including subclasses (in no particular order).
+     */
+    public <T> List<T> getViewsWithClass(Class<T> aClass)
+    {
+        List<T> list = new ArrayList<>();
+        for (Map.Entry<Class, Set<SGView>> entry : _classes.entrySet())
+            if (aClass.isAssignableFrom(entry.getKey()))
+                list.addAll((Set<T>) entry.getValue());
+        return list;
+    }
+
+    /**
+     * Inflates the lazy pages that have views with given name (so their views are indexed).
+     */
+    public void inflateLazyPagesWithName(String aName)
+    {
+        Set<SGView> pages = _lazyNames.get(aName);
+        if (pages != null)
+            for (SGView page : new ArrayList<>(pages))
+                ((SGPage) page).inflate();
+    }
+
+    /**
+     * Inflates the lazy pages that have views with given class or subclass (so their views are indexed).
+     */
+    public void inflateLazyPagesWithClass(Class aClass)
+    {
+        List<SGView> pages = new ArrayList<>();
+        for (Map.Entry<Class, Set<SGView>> entry : _lazyClasses.entrySet())
+            if (aClass.isAssignableFrom(entry.getKey()))
+                pages.addAll(entry.getValue());
+        for (SGView page : pages)
+            ((SGPage) page).inflate();
+    }
+
+    /**
+     * Updates index for given page becoming lazy or being inflated.
+     */
+    public void setPageLazy(SGPage aPage)
+    {
+        removeLazyPage(aPage);
+        if (aPage.isLazy())
+            addLazyPage(aPage);
+    }
+
+    /**
+     * Adds given view and its descendants to index.
+     */
+    public void addView(SGView aView)
+    {
+        // Add view by name and class
+        String name = aView.getName();
+        if (name != null)
+            getSet(_names, name).add(aView);
+        getSet(_classes, aView.getClass()).add(aView);
+
+        // If lazy page, add names and classes of archived views
+        if (aView instanceof SGPage && ((SGPage) aView).isLazy())
+            addLazyPage((SGPage) aView);
+
+        // Add children
+        for (int i = 0, iMax = aView.getChildCount(); i < iMax; i++)
+            addView(aView.getChild(i));
+    }
+
+    /**
+     * Removes given view and its descendants from index.
+     */
+    public void removeView(SGView aView)
+    {
+        // Remove view by name and class
+        String name = aView.getName();
+        if (name != null)
+            removeFromSet(_names, name, aView);
+        removeFromSet(_classes, aView.getClass(), aView);
+
+        // If page, remove names and classes of archived views
+        if (aView instanceof SGPage)
+            removeLazyPage((SGPage) aView);
+
+        // Remove children
+        for (int i = 0, iMax = aView.getChildCount(); i < iMax; i++)
+            removeView(aView.getChild(i));
+    }
+
+    /**
+     * Updates index for given view name change.
+     */
+    public void setViewName(SGView aView, String anOldName, String aNewName)
+    {
+        if (anOldName != null)
+            removeFromSet(_names, anOldName, aView);
+        if (aNewName != null)
+            getSet(_names, aNewName).add(aView);
+    }
+
+    /**
+     * Returns the view from given list that a recursive search of document children would find first (direct
+     * children of a parent before their descendants, then in child order).
+     */
+    public <T> T getFirstFound(List<T> theViews)
+    {
+        // If zero or one, just return
+        if (theViews.size() <= 1) return theViews.size() > 0 ? theViews.get(0) : null;
+
+        // Iterate over views and return first found
+        T first = theViews.get(0);
+        int[] firstPath = getPath((SGView) first);
+        for (int i = 1, iMax = theViews.size(); i < iMax; i++) {
+            int[] path = getPath((SGView) theViews.get(i));
+            if (compareFound(path, firstPath) < 0) {
+                first = theViews.get(i);
+                firstPath = path;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Sorts given views in document hierarchy order (parents before their descendants, then in child order).
+     */
+    public void sortInDocOrder(List<? extends SGView> theViews)
+    {
+        // If zero or one, just return
+        if (theViews.size() <= 1) return;
+
+        // Get paths for views and sort
+        Map<SGView, int[]> paths = new IdentityHashMap<>();
+        for (SGView view : theViews)
+            paths.put(view, getPath(view));
+        theViews.sort((v1, v2) -> compareOrder(paths.get(v1), paths.get(v2)));
+    }
+
+    /**
+     * Adds the names and classes of views in archived page element of given lazy page.
+     */
+    private void addLazyPage(SGPage aPage)
+    {
+        // Get names and classes from archived page children
+        Set<String> names = new HashSet<>();
+        Set<Class> classes = new HashSet<>();
+        XMLElement pageXML = aPage.getLazyXML();
+        for (int i = 0, iMax = pageXML.size(); i < iMax; i++)
+            addArchivedViews(pageXML.get(i), names, classes);
+
+        // Add page for names and classes
+        for (String name : names)
+            getSet(_lazyNames, name).add(aPage);
+        for (Class cls : classes)
+            getSet(_lazyClasses, cls).add(aPage);
+        _lazyPageNames.put(aPage, names);
+        _lazyPageClasses.put(aPage, classes);
+    }
+
+    /**
+     * Removes the names and classes of views in archived page element of given page (if it was added as lazy page).
+     */
+    private void removeLazyPage(SGPage aPage)
+    {
+        Set<String> names = _lazyPageNames.remove(aPage);
+        Set<Class> classes = _lazyPageClasses.remove(aPage);
+        if (names != null)
+            for (String name : names)
+                removeFromSet(_lazyNames, name, aPage);
+        if (classes != null)
+            for (Class cls : classes)
+                removeFromSet(_lazyClasses, cls, aPage);
+    }
+
+    /**
+     * Adds the names and classes of views in given archived element and its descendants to given sets.
+     */
+    private static void addArchivedViews(XMLElement anElement, Set<String> theNames, Set<Class> theClasses)
+    {
+        // If element is view, add class and name
+        Class cls = RMClassRegistry.getShared().getClass(anElement.getName());
+        if (cls != null && SGView.class.isAssignableFrom(cls)) {
+            theClasses.add(cls);
+            String name = anElement.getAttributeValue("name");
+            if (name != null)
+                theNames.add(name);
+        }
+
+        // Add children (views can be nested in other elements, like layers)
+        for (int i = 0, iMax = anElement.size(); i < iMax; i++)
+            addArchivedViews(anElement.get(i), theNames, theClasses);
+    }
+
+    /**
+     * Returns the child indexes from document to given view.
+     */
+    private int[] getPath(SGView aView)
+    {
+        // Get depth
+        int depth = 0;
+        for (SGView view = aView; view != _doc && view != null; view = view.getParent()) depth++;
+
+        // Get indexes
+        int[] path = new int[depth];
+        for (SGView view = aView; depth > 0; view = view.getParent())
+            path[--depth] = view.indexOf();
+        return path;
+    }
+
+    /**
+     * Compares given view paths for recursive search order: At the parent where paths diverge, a direct child comes
+     * first, otherwise lower child index comes first.
+     */
+    private static int compareFound(int[] aPath1, int[] aPath2)
+    {
+        // Get level where paths diverge (or end of shorter path)
+        int min = Math.min(aPath1.length, aPath2.length), level = 0;
+        while (level < min - 1 && aPath1[level] == aPath2[level]) level++;
+
+        // If only one is direct child at level, it comes first
+        boolean direct1 = aPath1.length == level + 1, direct2 = aPath2.length == level + 1;
+        if (direct1 != direct2) return direct1 ? -1 : 1;
+
+        // Otherwise, compare child index at level
+        return Integer.compare(aPath1[level], aPath2[level]);
+    }
+
+    /**
+     * Compares given view paths for hierarchy order: Lower child index at first differing level comes first, otherwise
+     * shorter path (parent) comes first.
+     */
+    private static int compareOrder(int[] aPath1, int[] aPath2)
+    {
+        for (int i = 0, iMax = Math.min(aPath1.length, aPath2.length); i < iMax; i++)
+            if (aPath1[i] != aPath2[i])
+                return Integer.compare(aPath1[i], aPath2[i]);
+        return Integer.compare(aPath1.length, aPath2.length);
+    }
+
+    /**
+     * Returns the set for given key in given map (creating if missing).
+     */
+    private static <K> Set<SGView> getSet(Map<K, Set<SGView>> aMap, K aKey)
+    {
+        return aMap.computeIfAbsent(aKey, k -> Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    /**
+     * Removes given view from the set for given key in given map (and removes set if empty).
+     */
+    private static <K> void removeFromSet(Map<K, Set<SGView>> aMap, K aKey, SGView aView)
+    {
+        Set<SGView> set = aMap.get(aKey);
+        if (set != null && set.remove(aView) && set.isEmpty())
+            aMap.remove(aKey);
+    }
+}
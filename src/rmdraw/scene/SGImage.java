@@ -310,11 +310,12 @@ public class SGImage extends SGRect {
         // Unarchive basic attributes
         super.fromXML(anArchiver, anElement);
 
-        // Unarchive Image resource: get resource bytes and set Image
+        // Unarchive Image resource: get shared ImageRef for resource bytes
         String rname = anElement.getAttributeValue("resource");
         if (rname != null) {
-            byte bytes[] = anArchiver.getResource(rname);
-            _imgRef = ImageRef.getImageRef(bytes);
+            if (anArchiver instanceof RMArchiver)
+                _imgRef = ((RMArchiver) anArchiver).getImageRefForResource(rname);
+            else _imgRef = RMArchiver.getImageRefShared(anArchiver.getResource(rname));
         }
 
         // Unarchive ImageName
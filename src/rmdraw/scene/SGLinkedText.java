@@ -56,6 +56,15 @@ public class SGLinkedText extends SGText {
         return getPreviousText().getRichText();
     }
 
+    /**
+     * Returns the same xstring as previous text, for read-only use.
+     */
+    @Override
+    protected RichText getRichTextShared()
+    {
+        return getPreviousText().getRichTextShared();
+    }
+
     /**
      * Returns the font for char 0 of the start text.
      */
@@ -3,9 +3,12 @@
  */
 package rmdraw.scene;
 import java.util.*;
+import java.util.function.Supplier;
 
 import snap.geom.Rect;
 import snap.gfx.*;
+import snap.props.DeepChangeListener;
+import snap.props.PropChange;
 import snap.util.*;
 
 /**
@@ -43,6 +46,25 @@ public class SGPage extends SGParent {
     // The list of layers for this page
     List<SGPageLayer> _layers = new Vector();
 
+    // The source of archived page element and archiver (with page resources), if contents aren't unarchived yet
+    private Supplier<XMLElement> _lazySource;
+    private XMLArchiver _lazyArchiver;
+
+    // Whether archived page element has reference ids (linked text), if known
+    private Boolean _lazyRefs;
+
+    // The number of changes to page and its descendants seen while document listens to page (see getSnapshotCopy())
+    int _changeCount;
+
+    // The source of archived page element and archiver from last save, and the change count they are current for
+    private Supplier<XMLElement> _savedSource;
+    private XMLArchiver _savedArchiver;
+    private int _savedChangeCount;
+
+    // The document page that this snapshot page was cloned from, and its change count when cloned
+    private SGPage _snapshotOf;
+    private int _snapshotChangeCount;
+
     /**
      * Creates a plain empty page.
      */
@@ -200,11 +222,8 @@ public class SGPage extends SGParent {
      */
     public SGPageLayer getChildLayer(SGView aChild)
     {
-        if (getLayers() != null)
-            for (SGPageLayer layer : getLayers())
-                if (layer.getChildIndex(aChild) >= 0)
-                    return layer;
-        return null;
+        SGPageLayer layer = aChild._pageLayer;
+        return layer != null && layer._page == this && ListUtils.containsId(_layers, layer) ? layer : null;
     }
 
     /**
@@ -285,20 +304,62 @@ public class SGPage extends SGParent {
         return child;
     }
 
+    /**
+     * Adds the given children (overrides to add children not yet in a layer to selected layer in one batch).
+     */
+    public void addChildren(ChildrenAt theChildren)
+    {
+        // Add children normally
+        super.addChildren(theChildren);
+
+        // Get selected layer (just return if none)
+        SGPageLayer selLayer = getSelLayer();
+        if (selLayer == null) return;
+
+        // Get children not in a layer
+        List<SGView> children = new ArrayList<>();
+        for (SGView child : theChildren.getChildren())
+            if (getChildLayer(child) == null)
+                children.add(child);
+
+        // Add to selected layer and reorder children
+        if (children.size() > 0) {
+            int index = Math.min(theChildren.getIndexes()[0], selLayer.getChildCount());
+            selLayer.addChildren(children, index);
+            orderChildrenFromLayers();
+        }
+    }
+
+    /**
+     * Removes the given children (overrides to remove children from their layers in one batch).
+     */
+    public ChildrenAt removeChildren(Collection<SGView> theChildren)
+    {
+        // Do normal remove children
+        ChildrenAt removed = super.removeChildren(theChildren);
+
+        // Remove children from their layers (each layer just removes its own children)
+        if (removed != null && getLayerCount() > 0) {
+            List<SGView> children = Arrays.asList(removed.getChildren());
+            for (SGPageLayer layer : getLayers())
+                layer.removeChildren(children);
+        }
+
+        // Return removed children
+        return removed;
+    }
+
     /**
      * Overrides shape implementation to keep shapes in their proper layers.
      */
     public void bringViewsToFront(List theViews)
     {
-        // Register for repaint
-        repaint();
-
         // Have layers bring shapes to front
         for (int i = 0; i < getLayerCount(); i++)
             getLayer(i).bringShapesToFront(theViews);
 
-        // Re-order page children from layers
-        orderChildrenFromLayers();
+        // Set page child order from layers
+        setChildOrderFromLayers();
     }
 
     /**
@@ -306,15 +367,46 @@ public class SGPage extends SGParent {
      */
     public void sendViewsToBack(List theViews)
     {
-        // Register for repaint
-        repaint();
-
         // Have layers send shapes to back
         for (int i = 0; i < getLayerCount(); i++)
             getLayer(i).sendShapesToBack(theViews);
 
-        // Re-order page children from layers
-        orderChildrenFromLayers();
+        // Set page child order from layers
+        setChildOrderFromLayers();
+    }
+
+    /**
+     * Sets the page child order from layers (as a single change).
+     */
+    private void setChildOrderFromLayers()
+    {
+        // If no layers, just return
+        if (getLayerCount() == 0) return;
+
+        // Get children from layers and set
+        List<SGView> children = new ArrayList<>(getChildCount());
+        for (SGPageLayer layer : getLayers())
+            children.addAll(layer.getChildren());
+        setChildOrder(children.toArray(new SGView[0]));
+    }
+
+    /**
+     * Override to reorder layer children to match (each layer's children keep their page order).
+     */
+    public void setChildOrder(SGView[] theChildren)
+    {
+        // Do normal version
+        super.setChildOrder(theChildren);
+
+        // Get children for each layer, in page order, and set
+        Map<SGPageLayer, List<SGView>> layerChildren = new IdentityHashMap<>();
+        for (SGView child : theChildren) {
+            SGPageLayer layer = getChildLayer(child);
+            if (layer != null)
+                layerChildren.computeIfAbsent(layer, l -> new ArrayList<>()).add(child);
+        }
+        for (Map.Entry<SGPageLayer, List<SGView>> entry : layerChildren.entrySet())
+            entry.getKey().setChildren(entry.getValue());
     }
 
     /**
@@ -367,10 +459,10 @@ public class SGPage extends SGParent {
         if (getLayerCount() < 2 || !aChild.isVisible())
             return aChild.isVisible();
 
-        // Iterate over layers and if layer contains child, return whether layer is visible
-        for (SGPageLayer layer : getLayers())
-            if (ListUtils.contains(layer.getChildren(), aChild))
-                return layer.isVisible() || layer == getSelLayer();
+        // Get child layer and return whether layer is visible
+        SGPageLayer layer = getChildLayer(aChild);
+        if (layer != null)
+            return layer.isVisible() || layer == getSelLayer();
 
         // Return true since layer not found (shouldn't ever get here)
         return true;
@@ -385,10 +477,10 @@ public class SGPage extends SGParent {
         if (getLayerCount() < 2 || !aChild.isVisible())
             return aChild.isVisible();
 
-        // Iterate over layers and if layer contains child, return whether layer is not locked and visible
-        for (SGPageLayer layer : getLayers())
-            if (ListUtils.contains(layer.getChildren(), aChild))
-                return !layer.isLocked() && (layer.isVisible() || layer == getSelLayer());
+        // Get child layer and return whether layer is not locked and visible
+        SGPageLayer layer = getChildLayer(aChild);
+        if (layer != null)
+            return !layer.isLocked() && (layer.isVisible() || layer == getSelLayer());
 
         // Return false since layer not found (shouldn't ever get here)
         return false;
@@ -509,9 +601,315 @@ public class SGPage extends SGParent {
         SGPage clone = (SGPage) super.clone(); // Do normal shape clone
         clone._layerIndex = 0;
         clone._layers = null; // Clear LayerIndex and Layers
+        clone._savedSource = null;
+        clone._savedArchiver = null;
+        clone._snapshotOf = null; // Clear saved page and snapshot vars
         return clone;
     }
 
+    /**
+     * Override to give clone copies of layers that hold the clones of layer children.
+     */
+    public SGPage cloneDeep()
+    {
+        // Do normal version (clone has no layers yet)
+        SGPage clone = (SGPage) super.cloneDeep();
+
+        // Get map of children to child clones (cloneDeep adds child clones in child order)
+        Map<SGView, SGView> clones = new IdentityHashMap<>();
+        for (int i = 0, iMax = getChildCount(); i < iMax; i++)
+            clones.put(getChild(i), clone.getChild(i));
+
+        // Iterate over layers and add copy with child clones to clone
+        clone._layers = new Vector();
+        for (int i = 0, iMax = getLayerCount(); i < iMax; i++) {
+            SGPageLayer layer = getLayer(i);
+            SGPageLayer layerClone = new SGPageLayer(clone, layer.getName());
+            layerClone.setVisible(layer.isVisible());
+            layerClone.setLocked(layer.isLocked());
+            List<SGView> children = new ArrayList<>(layer.getChildCount());
+            for (SGView child : layer.getChildren())
+                children.add(clones.get(child));
+            layerClone.addChildren(children);
+            clone._layers.add(layerClone);
+        }
+
+        // If no layers, reset layers (single layer with all children), otherwise copy selected layer index
+        if (clone.getLayerCount() == 0)
+            clone.resetLayers();
+        else clone._layerIndex = _layerIndex;
+        return clone;
+    }
+
+    /**
+     * Returns whether page contents haven't been unarchived yet (see inflate()).
+     */
+    public boolean isLazy()
+    {
+        return _lazySource != null;
+    }
+
+    /**
+     * Unarchives page attributes from given element and sets page XML to be unarchived later (on inflate()).
+     */
+    protected void setLazyXML(XMLArchiver anArchiver, XMLElement aStartElement, String anXML)
+    {
+        setLazySource(anArchiver, aStartElement, () -> XMLCursor.readElement(anXML));
+        _lazyRefs = anXML.contains("xref=") || anXML.contains("linked-text=");
+    }
+
+    /**
+     * Unarchives page attributes from given element and sets source of page element to be unarchived later.
+     */
+    protected void setLazySource(XMLArchiver anArchiver, XMLElement aStartElement, Supplier<XMLElement> aSource)
+    {
+        fromXMLView(anArchiver, aStartElement);
+        _lazySource = aSource;
+        _lazyArchiver = anArchiver;
+        _lazyRefs = null;
+    }
+
+    /**
+     * Returns whether page is lazy and archived page element has reference ids (linked text). Those ids are from the
+     * archiver that read the page, so such pages need to be inflated before being archived with another archiver.
+     */
+    public boolean isLazyReferencing()
+    {
+        if (_lazySource == null) return false;
+        if (_lazyRefs == null)
+            _lazyRefs = hasReferences(_lazySource.get());
+        return _lazyRefs;
+    }
+
+    /**
+     * Returns whether given element (or its children) has reference ids.
+     */
+    private static boolean hasReferences(XMLElement anElement)
+    {
+        if (anElement.hasAttribute("xref") || anElement.hasAttribute("linked-text"))
+            return true;
+        for (int i = 0, iMax = anElement.size(); i < iMax; i++)
+            if (hasReferences(anElement.get(i)))
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns whether given view (or its descendants) is linked text or links to linked text.
+     */
+    private static boolean hasLinkedText(SGView aView)
+    {
+        if (aView instanceof SGText && (aView instanceof SGLinkedText || ((SGText) aView).getLinkedText() != null))
+            return true;
+        for (int i = 0, iMax = aView.getChildCount(); i < iMax; i++)
+            if (hasLinkedText(aView.getChild(i)))
+                return true;
+        return false;
+    }
+
+    /**
+     * Unarchives page contents if page is lazy.
+     */
+    public void inflate()
+    {
+        // If not lazy, just return
+        if (_lazySource == null) return;
+
+        // Get page element and archiver and clear lazy vars
+        XMLElement pageXML = _lazySource.get();
+        XMLArchiver archiver = _lazyArchiver;
+        _lazySource = null;
+        _lazyArchiver = null;
+
+        // Unarchive page attributes from full element, like fill and border (with undo disabled, preserving location)
+        double x = _x, y = _y;
+        undoerDisable();
+        fromXMLView(archiver, pageXML);
+        undoerEnable();
+        _x = x;
+        _y = y;
+
+        // Unarchive children and layers into holder page (contents are already part of document, so no Child changes)
+        SGPage page = new SGPage();
+        page.fromXMLChildren(archiver, pageXML);
+        List<SGView> children = new ArrayList<>(page._children);
+        page._children.clear();
+
+        // Take layers and children from holder page
+        _layers = page._layers;
+        for (SGPageLayer layer : _layers)
+            layer._page = this;
+        _layerIndex = page._layerIndex;
+        addChildrenQuietly(children);
+
+        // Layout and repaint
+        layoutDeep();
+        repaint();
+
+        // Update document index
+        if (_parent instanceof SGDoc)
+            ((SGDoc) _parent).pageLazyDidChange(this);
+    }
+
+    /**
+     * Archives page contents to compact XML string and removes children (page will inflate again on demand).
+     * Returns false if page is already lazy or has linked text (links to views on other pages wouldn't survive).
+     */
+    public boolean dehydrate()
+    {
+        // If already lazy or has linked text, just return
+        if (_lazySource != null || hasLinkedText(this)) return false;
+
+        // Archive page
+        RMArchiver archiver = new RMArchiver();
+        XMLElement pageXML = toXML(archiver);
+
+        // Remove children from page and layers (contents stay part of document as page XML, so no Child changes)
+        removeChildrenQuietly();
+        for (int i = 0, iMax = getLayerCount(); i < iMax; i++)
+            getLayer(i).removeChildren();
+
+        // Set lazy vars
+        String xml = pageXML.getString();
+        _lazySource = () -> XMLCursor.readElement(xml);
+        _lazyArchiver = archiver;
+        _lazyRefs = false;
+
+        // Update document index
+        if (_parent instanceof SGDoc)
+            ((SGDoc) _parent).pageLazyDidChange(this);
+        return true;
+    }
+
+    /**
+     * Returns the archived page element, if lazy.
+     */
+    XMLElement getLazyXML()
+    {
+        return _lazySource != null ? _lazySource.get() : null;
+    }
+
+    /**
+     * Returns a copy of page for document snapshot: If lazy, a clone that shares lazy source. If page hasn't changed
+     * since last save, a lazy page that shares archived page from that save. Otherwise, a deep clone.
+     */
+    SGPage getSnapshotCopy()
+    {
+        // If lazy, return clone (shares lazy source)
+        if (_lazySource != null) return cloneDeep();
+
+        // If archived page from last save is current, return lazy copy that shares it
+        boolean counting = isCountingChanges();
+        if (_savedSource != null && _savedChangeCount == _changeCount && counting) {
+            SGPage copy = clone();
+            copy._layers = new Vector();
+            copy.resetLayers();
+            copy._lazySource = _savedSource;
+            copy._lazyArchiver = _savedArchiver;
+            copy._lazyRefs = false;
+            return copy;
+        }
+
+        // Return deep clone (if changes are counted, remember this page so it can share archived copy after save)
+        SGPage copy = cloneDeep();
+        if (counting) {
+            copy._snapshotOf = this;
+            copy._snapshotChangeCount = _changeCount;
+        }
+        return copy;
+    }
+
+    /**
+     * Archives this snapshot page to compact page XML, if it was cloned from a document page (see dehydrate()).
+     */
+    boolean dehydrateSnapshotCopy()
+    {
+        return _snapshotOf != null && dehydrate();
+    }
+
+    /**
+     * Called when this snapshot page has been saved: Gives archived page to document page, if it hasn't changed since.
+     */
+    void snapshotCopySaved()
+    {
+        SGPage page = _snapshotOf;
+        if (page == null || _lazySource == null || page._changeCount != _snapshotChangeCount) return;
+        page._savedSource = _lazySource;
+        page._savedArchiver = _lazyArchiver;
+        page._savedChangeCount = _snapshotChangeCount;
+    }
+
+    /**
+     * Returns whether changes to page are counted (document listens to page and page listens to its children).
+     */
+    private boolean isCountingChanges()
+    {
+        return _parent instanceof SGDoc && ((SGDoc) _parent)._childPCL != null && _childPCL != null;
+    }
+
+    /**
+     * Override to count change.
+     */
+    void childDidPropChange(PropChange aPC)
+    {
+        _changeCount++;
+        super.childDidPropChange(aPC);
+    }
+
+    /**
+     * Override to count change.
+     */
+    void childDidDeepChange(Object aLsnr, PropChange aPC)
+    {
+        _changeCount++;
+        super.childDidDeepChange(aLsnr, aPC);
+    }
+
+    /**
+     * Override to count a change when page stops listening to children (later changes can't be seen).
+     */
+    public void removeDeepChangeListener(DeepChangeListener aDCL)
+    {
+        super.removeDeepChangeListener(aDCL);
+        if (_childPCL == null)
+            _changeCount++;
+    }
+
+    /**
+     * Override to return archived XML if lazy (adding referenced resources to given archiver).
+     */
+    public XMLElement toXML(XMLArchiver anArchiver)
+    {
+        // If not lazy, do normal version
+        if (_lazySource == null)
+            return super.toXML(anArchiver);
+
+        // Get page element from lazy source, copy resources and return
+        XMLElement pageXML = _lazySource.get();
+        if (anArchiver != _lazyArchiver)
+            copyLazyResources(pageXML, anArchiver);
+        return pageXML;
+    }
+
+    /**
+     * Adds resources referenced by given element (and its children) from lazy archiver to given archiver.
+     */
+    private void copyLazyResources(XMLElement anElement, XMLArchiver anArchiver)
+    {
+        // If element references resource, add resource bytes to archiver and reset name
+        String rname = anElement.getAttributeValue("resource");
+        byte[] bytes = rname != null ? _lazyArchiver.getResource(rname) : null;
+        if (bytes != null) {
+            String rname2 = anArchiver.addResource(bytes, rname);
+            anElement.removeAttribute("resource");
+            anElement.add("resource", rname2);
+        }
+
+        // Recurse into children
+        for (int i = 0, iMax = anElement.size(); i < iMax; i++)
+            copyLazyResources(anElement.get(i), anArchiver);
+    }
+
     /**
      * XML archival.
      */
@@ -28,6 +28,9 @@ public class SGPageLayer implements Cloneable {
     // The children in this layer
     List<SGView> _children = new ArrayList();
 
+    // Whether the layer index of children is up to date
+    boolean _childIndexesValid;
+
     // Constants defining the state of the layer
     public static final int StateVisible = 0;
     public static final int StateInvisible = 1;
@@ -71,6 +74,7 @@ public class SGPageLayer implements Cloneable {
     public void setName(String aName)
     {
         _name = aName;
+        pageDidChange();
     }
 
     /**
@@ -87,6 +91,7 @@ public class SGPageLayer implements Cloneable {
     public void setVisible(boolean aFlag)
     {
         _visible = aFlag;
+        pageDidChange();
     }
 
     /**
@@ -103,6 +108,7 @@ public class SGPageLayer implements Cloneable {
     public void setLocked(boolean aFlag)
     {
         _locked = aFlag;
+        pageDidChange();
     }
 
     /**
@@ -139,6 +145,16 @@ public class SGPageLayer implements Cloneable {
             _locked = false;
             _visible = true;
         }
+        pageDidChange();
+    }
+
+    /**
+     * Counts a page change for layer change (layers don't fire changes, see SGPage.getSnapshotCopy()).
+     */
+    private void pageDidChange()
+    {
+        if (_page != null)
+            _page._changeCount++;
     }
 
     /**
@@ -171,6 +187,8 @@ public class SGPageLayer implements Cloneable {
     public void addChild(SGView aChild)
     {
         _children.add(aChild);
+        aChild._pageLayer = this;
+        aChild._pageLayerIndex = _children.size() - 1;
     }
 
     /**
@@ -179,6 +197,8 @@ public class SGPageLayer implements Cloneable {
     public void addChild(SGView aChild, int anIndex)
     {
         _children.add(anIndex, aChild);
+        aChild._pageLayer = this;
+        _childIndexesValid = false;
     }
 
     /**
@@ -186,7 +206,10 @@ public class SGPageLayer implements Cloneable {
      */
     public Object removeChild(int anIndex)
     {
-        return _children.remove(anIndex);
+        SGView child = _children.remove(anIndex);
+        if (child._pageLayer == this) child._pageLayer = null;
+        _childIndexesValid = false;
+        return child;
     }
 
     /**
@@ -194,7 +217,9 @@ public class SGPageLayer implements Cloneable {
      */
     public int removeChild(SGView aChild)
     {
-        return ListUtils.removeId(_children, aChild);
+        int index = getChildIndex(aChild);
+        if (index >= 0) removeChild(index);
+        return index;
     }
 
     /**
@@ -203,17 +228,41 @@ public class SGPageLayer implements Cloneable {
     public void addChildren(List<SGView> theShapes)
     {
         if (theShapes != null)
-            for (SGView shape : theShapes)
-                addChild(shape);
+            addChildren(theShapes, _children.size());
+    }
+
+    /**
+     * Adds a list of children to this layer at the given index.
+     */
+    public void addChildren(List<SGView> theShapes, int anIndex)
+    {
+        _children.addAll(anIndex, theShapes);
+        for (SGView child : theShapes)
+            child._pageLayer = this;
+        _childIndexesValid = false;
     }
 
     /**
-     * Removes a list of children from this layer.
+     * Removes a list of children from this layer (in one pass).
      */
-    public void removeChildren(List<SGView> theShapes)
+    public void removeChildren(Collection<SGView> theShapes)
     {
-        for (SGView shape : theShapes)
-            removeChild(shape);
+        // If single child, just remove it
+        if (theShapes.size() == 1) {
+            removeChild(theShapes.iterator().next());
+            return;
+        }
+
+        // Get set of children to remove (by identity) and remove
+        Set<SGView> remove = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (SGView child : theShapes)
+            if (child._pageLayer == this)
+                remove.add(child);
+        if (remove.size() == 0) return;
+        _children.removeIf(child -> remove.contains(child));
+        for (SGView child : remove)
+            child._pageLayer = null;
+        _childIndexesValid = false;
     }
 
     /**
@@ -221,6 +270,9 @@ public class SGPageLayer implements Cloneable {
      */
     public void removeChildren()
     {
+        for (SGView child : _children)
+            if (child._pageLayer == this)
+                child._pageLayer = null;
         _children.clear();
     }
 
@@ -241,7 +293,18 @@ public class SGPageLayer implements Cloneable {
      */
     public int getChildIndex(SGView aChild)
     {
-        return ListUtils.indexOfId(getChildren(), aChild);
+        // If child not in this layer, return -1
+        if (aChild._pageLayer != this) return -1;
+
+        // If child indexes not up to date, reset them
+        if (!_childIndexesValid) {
+            for (int i = 0, iMax = _children.size(); i < iMax; i++)
+                _children.get(i)._pageLayerIndex = i;
+            _childIndexesValid = true;
+        }
+
+        // Return child index
+        return aChild._pageLayerIndex;
     }
 
     /**
@@ -263,12 +326,7 @@ public class SGPageLayer implements Cloneable {
      */
     public void bringShapesToFront(List shapes)
     {
-        // Iterate over given shapes and move each to front of this layer
-        for (int i = 0, iMax = shapes.size(); i < iMax; i++) {
-            SGView child = (SGView) shapes.get(i);
-            if (ListUtils.removeId(_children, child) >= 0)
-                _children.add(child);
-        }
+        reorderShapes(shapes, true);
     }
 
     /**
@@ -276,12 +334,40 @@ public class SGPageLayer implements Cloneable {
      */
     public void sendShapesToBack(List shapes)
     {
-        // Iterate over given shapes and move each to back of this layer
-        for (int i = 0, iMax = shapes.size(); i < iMax; i++) {
-            SGView child = (SGView) shapes.get(i);
-            if (ListUtils.removeId(_children, child) >= 0)
-                _children.add(i, child);
-        }
+        reorderShapes(shapes, false);
+    }
+
+    /**
+     * Moves the shapes in given list to front or back of this layer in one pass (a stable partition, so moved and
+     * unmoved shapes both keep their relative order).
+     */
+    private void reorderShapes(List shapes, boolean toFront)
+    {
+        // Get set of given shapes in this layer (just return if none)
+        Set<SGView> moved = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Object shape : shapes)
+            if (((SGView) shape)._pageLayer == this)
+                moved.add((SGView) shape);
+        if (moved.size() == 0) return;
+
+        // Split children into moved and unmoved and reset children
+        List<SGView> movedList = new ArrayList<>(moved.size());
+        List<SGView> unmovedList = new ArrayList<>(_children.size() - moved.size());
+        for (SGView child : _children)
+            (moved.contains(child) ? movedList : unmovedList).add(child);
+        if (toFront) unmovedList.addAll(movedList);
+        else unmovedList.addAll(0, movedList);
+        setChildren(unmovedList);
+    }
+
+    /**
+     * Resets the order of children in this layer to given list (which must hold the same children).
+     */
+    void setChildren(List<SGView> theChildren)
+    {
+        _children.clear();
+        _children.addAll(theChildren);
+        _childIndexesValid = false;
     }
 
     /**
@@ -2,8 +2,8 @@
  * Copyright (c) 2010, ReportMill Software. All rights reserved.
  */
 package rmdraw.scene;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.Serializable;
+import java.util.*;
 
 import snap.geom.Point;
 import snap.geom.Rect;
@@ -33,8 +33,14 @@ public class SGParent extends SGView implements PropChange.DoChange {
     // A listener to catch child DeepChange (for editor undo)
     DeepChangeListener _childDCL;
 
+    // Whether children are being moved by setChildrenXY (child X/Y changes are covered by ChildrenXY change)
+    boolean _settingChildrenXY;
+
     // Constants for properties
     public static final String Child_Prop = "Child";
+    public static final String ChildrenXY_Prop = "ChildrenXY";
+    public static final String Children_Prop = "Children";
+    public static final String ChildOrder_Prop = "ChildOrder";
 
     /**
      * Returns the number of children associated with this view.
@@ -157,11 +163,217 @@ public class SGParent extends SGView implements PropChange.DoChange {
     }
 
     /**
-     * Removes all children from this view (in reverse order).
+     * Adds the given children to this view's children list at the given index, as a single change (see addChildren).
+     */
+    public void addChildren(List<SGView> theChildren, int anIndex)
+    {
+        // If no children, just return
+        if (theChildren.size() == 0) return;
+
+        // Remove children from current parents (a batch per parent) and adjust index for any removed from this view
+        Map<SGParent, List<SGView>> parents = new IdentityHashMap<>();
+        for (SGView child : theChildren)
+            if (child._parent != null)
+                parents.computeIfAbsent(child._parent, p -> new ArrayList<>()).add(child);
+        for (Map.Entry<SGParent, List<SGView>> entry : parents.entrySet()) {
+            ChildrenAt removed = entry.getKey().removeChildren(entry.getValue());
+            if (entry.getKey() == this && removed != null)
+                for (int index : removed._indexes)
+                    if (index < anIndex) anIndex--;
+        }
+
+        // Get children and consecutive indexes and add
+        SGView[] children = theChildren.toArray(new SGView[0]);
+        int[] indexes = new int[children.length];
+        for (int i = 0; i < indexes.length; i++) indexes[i] = anIndex + i;
+        addChildren(new ChildrenAt(children, indexes));
+    }
+
+    /**
+     * Adds the given children (which must not have a parent) at their indexes as a single change: Children list is
+     * updated in one pass, a single Children PropChange is fired (one undo step) and layout and repaint are
+     * registered once.
+     */
+    public void addChildren(ChildrenAt theChildren)
+    {
+        // Merge current children and new children (at their indexes) in one pass and reset children list
+        SGView[] children = theChildren._children;
+        int[] indexes = theChildren._indexes;
+        List<SGView> list = new ArrayList<>(_children.size() + children.length);
+        for (int i = 0, j = 0, iMax = _children.size(); i <= iMax; i++) {
+            while (j < children.length && (indexes[j] <= list.size() || i == iMax))
+                list.add(children[j++]);
+            if (i < iMax) list.add(_children.get(i));
+        }
+        _children.clear();
+        _children.addAll(list);
+
+        // Set children parent and, if this view has PropChangeListeners, start listening to children as well
+        for (SGView child : children) {
+            child.setParent(this);
+            if (_childPCL != null) {
+                child.addPropChangeListener(_childPCL);
+                child.addDeepChangeListener(_childDCL);
+            }
+        }
+
+        // Fire property change
+        firePropChange(Children_Prop, null, theChildren);
+
+        // Register to layout this view and parents and repaint
+        relayout();
+        relayoutParent();
+        repaint();
+        setNeedsLayoutDeep(true);
+    }
+
+    /**
+     * Adds the given children at end without firing a change or registering layout. This is only for contents that
+     * are already part of the model but weren't unarchived yet (see SGPage.inflate()).
+     */
+    protected void addChildrenQuietly(List<SGView> theChildren)
+    {
+        // Add children, set parent and, if this view has PropChangeListeners, start listening to children as well
+        _children.addAll(theChildren);
+        for (SGView child : theChildren) {
+            child._parent = null;
+            child.setParent(this);
+            if (_childPCL != null) {
+                child.addPropChangeListener(_childPCL);
+                child.addDeepChangeListener(_childDCL);
+            }
+        }
+    }
+
+    /**
+     * Removes all children without firing a change or registering layout. This is only for contents that stay part
+     * of the model in archived form (see SGPage.dehydrate()).
+     */
+    protected void removeChildrenQuietly()
+    {
+        // Clear children parent and, if this view has child prop listeners, clear from children
+        for (SGView child : _children) {
+            child.setParent(null);
+            if (_childPCL != null) {
+                child.removePropChangeListener(_childPCL);
+                child.removeDeepChangeListener(_childDCL);
+            }
+        }
+        _children.clear();
+    }
+
+    /**
+     * Removes the given children from this view's children list as a single change: Children list is updated in one
+     * pass, a single Children PropChange is fired (one undo step) and layout and repaint are registered once.
+     * Returns the removed children and their indexes (or null if none were children of this view).
+     */
+    public ChildrenAt removeChildren(Collection<SGView> theChildren)
+    {
+        // Get set of given children that are children of this view (just return if none)
+        Set<SGView> remove = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (SGView child : theChildren)
+            if (child._parent == this)
+                remove.add(child);
+        if (remove.size() == 0) return null;
+
+        // Iterate over children and split into kept children and removed children (with indexes)
+        SGView[] removed = new SGView[remove.size()];
+        int[] indexes = new int[removed.length];
+        List<SGView> kept = new ArrayList<>(_children.size() - removed.length);
+        for (int i = 0, j = 0, iMax = _children.size(); i < iMax; i++) {
+            SGView child = _children.get(i);
+            if (j < removed.length && remove.contains(child)) {
+                removed[j] = child;
+                indexes[j++] = i;
+            }
+            else kept.add(child);
+        }
+        _children.clear();
+        _children.addAll(kept);
+
+        // Clear children parent and, if this view has child prop listeners, clear from children
+        for (SGView child : removed) {
+            child.setParent(null);
+            if (_childPCL != null) {
+                child.removePropChangeListener(_childPCL);
+                child.removeDeepChangeListener(_childDCL);
+            }
+        }
+
+        // Register to layout this view and parents and repaint
+        relayout();
+        relayoutParent();
+        repaint();
+
+        // Fire property change and return
+        ChildrenAt childrenAt = new ChildrenAt(removed, indexes);
+        firePropChange(Children_Prop, childrenAt, null);
+        return childrenAt;
+    }
+
+    /**
+     * Removes all children from this view (as a single change).
      */
     public void removeChildren()
     {
-        for (int i = getChildCount() - 1; i >= 0; i--) removeChild(i);
+        if (getChildCount() > 0)
+            removeChildren(getChildren());
+    }
+
+    /**
+     * Moves the given children by given offset as a single transaction: Children fire X/Y changes to their own
+     * listeners, the union of old and new child bounds is repainted once and a single ChildrenXY PropChange is fired
+     * to deep listeners (one undo step).
+     */
+    public void offsetChildrenXY(List<SGView> theChildren, double dx, double dy)
+    {
+        // If no children or offset, just return
+        if (theChildren.size() == 0 || dx == 0 && dy == 0) return;
+
+        // Get new locations and set
+        ChildrenXY childrenXY = new ChildrenXY(theChildren);
+        childrenXY.offset(dx, dy);
+        setChildrenXY(childrenXY);
+    }
+
+    /**
+     * Sets the locations of a group of children as a single transaction.
+     */
+    public void setChildrenXY(ChildrenXY theXY)
+    {
+        // Get current locations and bounds
+        SGView[] children = theXY.getChildren();
+        ChildrenXY oldXY = new ChildrenXY(Arrays.asList(children));
+        Rect bounds = getBoundsMarkedDeepOfChildren(children);
+
+        // Set new locations (without child repaints and without forwarding child X/Y changes to deep listeners)
+        _settingChildrenXY = true;
+        try {
+            for (int i = 0; i < children.length; i++)
+                children[i].setXYNoRepaint(theXY._xs[i], theXY._ys[i]);
+        }
+        finally { _settingChildrenXY = false; }
+
+        // Repaint union of old and new bounds
+        bounds.unionEvenIfEmpty(getBoundsMarkedDeepOfChildren(children));
+        repaint(bounds);
+
+        // Fire single property change
+        firePropChange(ChildrenXY_Prop, oldXY, theXY);
+    }
+
+    /**
+     * Returns the union of the marked deep bounds of given children in this view's coords.
+     */
+    private Rect getBoundsMarkedDeepOfChildren(SGView[] theChildren)
+    {
+        Rect bounds = null;
+        for (SGView child : theChildren) {
+            Rect cbnds = child.localToParent(child.getBoundsMarkedDeep()).getBounds();
+            if (bounds == null) bounds = cbnds;
+            else bounds.unionEvenIfEmpty(cbnds);
+        }
+        return bounds;
     }
 
     /**
@@ -298,6 +510,10 @@ public class SGParent extends SGView implements PropChange.DoChange {
      */
     void childDidPropChange(PropChange aPC)
     {
+        // If child X/Y change from setChildrenXY, just return (ChildrenXY change is fired instead)
+        String pname = aPC.getPropName();
+        if (_settingChildrenXY && (pname == X_Prop || pname == Y_Prop)) return;
+
         _pcs.fireDeepChange(this, aPC);
     }
 
@@ -562,10 +778,7 @@ public class SGParent extends SGView implements PropChange.DoChange {
      */
     public void bringViewsToFront(List<SGView> theViews)
     {
-        for (SGView view : theViews) {
-            removeChild(view);
-            addChild(view);
-        }
+        setChildOrder(getChildrenPartitioned(theViews, true));
     }
 
     /**
@@ -573,11 +786,52 @@ public class SGParent extends SGView implements PropChange.DoChange {
      */
     public void sendViewsToBack(List<SGView> theViews)
     {
-        for (int i = 0, iMax = theViews.size(); i < iMax; i++) {
-            SGView view = theViews.get(i);
-            removeChild(view);
-            addChild(view, i);
+        setChildOrder(getChildrenPartitioned(theViews, false));
+    }
+
+    /**
+     * Returns the children reordered with given views moved to front or back (a stable partition, so moved and
+     * unmoved children both keep their relative order).
+     */
+    private SGView[] getChildrenPartitioned(List<SGView> theViews, boolean toFront)
+    {
+        // Get set of given views that are children of this view
+        Set<SGView> moved = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (SGView view : theViews)
+            if (view._parent == this)
+                moved.add(view);
+
+        // Iterate over children and add to moved or unmoved range of new children array
+        int count = getChildCount(), movedCount = moved.size();
+        SGView[] children = new SGView[count];
+        int unmovedIndex = toFront ? 0 : movedCount, movedIndex = toFront ? count - movedCount : 0;
+        for (SGView child : _children) {
+            if (moved.contains(child)) children[movedIndex++] = child;
+            else children[unmovedIndex++] = child;
         }
+
+        // Return children
+        return children;
+    }
+
+    /**
+     * Sets the order of children to the given array (which must hold the same children) as a single change: Children
+     * list is rewritten once and a single ChildOrder PropChange is fired (one undo step).
+     */
+    public void setChildOrder(SGView[] theChildren)
+    {
+        // If order unchanged, just return
+        SGView[] oldChildren = getChildArray();
+        if (Arrays.equals(oldChildren, theChildren)) return;
+
+        // Rewrite children list
+        _children.clear();
+        _children.addAll(Arrays.asList(theChildren));
+
+        // Fire property change and register to layout and repaint
+        firePropChange(ChildOrder_Prop, oldChildren, theChildren);
+        relayout();
+        repaint();
     }
 
     /**
@@ -608,6 +862,9 @@ public class SGParent extends SGView implements PropChange.DoChange {
     public Object getPropValue(String aPropName)
     {
         if (aPropName == Child_Prop) return null;
+        if (aPropName == ChildrenXY_Prop) return null;
+        if (aPropName == Children_Prop) return null;
+        if (aPropName == ChildOrder_Prop) return null;
         return super.getKeyValue(aPropName);
     }
 
@@ -623,6 +880,14 @@ public class SGParent extends SGView implements PropChange.DoChange {
             if (oldC == null) addChild(newC, ind);
             else removeChild(ind);
         }
+        else if (pname == ChildrenXY_Prop)
+            setChildrenXY((ChildrenXY) newVal);
+        else if (pname == ChildOrder_Prop)
+            setChildOrder((SGView[]) newVal);
+        else if (pname == Children_Prop) {
+            if (oldVal == null) addChildren((ChildrenAt) newVal);
+            else removeChildren(Arrays.asList(((ChildrenAt) oldVal)._children));
+        }
         else setKeyValue(pname, newVal);
     }
 
@@ -699,4 +964,112 @@ public class SGParent extends SGView implements PropChange.DoChange {
             }
         }
     }
+
+    /**
+     * A class to hold the locations of a group of children (the value of a ChildrenXY PropChange).
+     */
+    public static class ChildrenXY implements Serializable {
+
+        // The children
+        private SGView[] _children;
+
+        // The raw x and y values
+        private double[] _xs, _ys;
+
+        /**
+         * Creates ChildrenXY for current locations of given children.
+         */
+        public ChildrenXY(List<SGView> theChildren)
+        {
+            _children = theChildren.toArray(new SGView[0]);
+            _xs = new double[_children.length];
+            _ys = new double[_children.length];
+            for (int i = 0; i < _children.length; i++) {
+                _xs[i] = _children[i]._x;
+                _ys[i] = _children[i]._y;
+            }
+        }
+
+        /**
+         * Creates ChildrenXY for given children and locations.
+         */
+        public ChildrenXY(SGView[] theChildren, double[] theXs, double[] theYs)
+        {
+            _children = theChildren;
+            _xs = theXs;
+            _ys = theYs;
+        }
+
+        /**
+         * Returns the children.
+         */
+        public SGView[] getChildren()
+        {
+            return _children;
+        }
+
+        /**
+         * Returns the x values.
+         */
+        public double[] getXs()
+        {
+            return _xs;
+        }
+
+        /**
+         * Returns the y values.
+         */
+        public double[] getYs()
+        {
+            return _ys;
+        }
+
+        /**
+         * Offsets all locations by given amount.
+         */
+        public void offset(double dx, double dy)
+        {
+            for (int i = 0; i < _children.length; i++) {
+                _xs[i] += dx;
+                _ys[i] += dy;
+            }
+        }
+    }
+
+    /**
+     * A class to hold a group of children and their indexes, in ascending order (the value of a Children PropChange).
+     */
+    public static class ChildrenAt implements Serializable {
+
+        // The children
+        private SGView[] _children;
+
+        // The child indexes
+        private int[] _indexes;
+
+        /**
+         * Creates ChildrenAt for given children and indexes.
+         */
+        public ChildrenAt(SGView[] theChildren, int[] theIndexes)
+        {
+            _children = theChildren;
+            _indexes = theIndexes;
+        }
+
+        /**
+         * Returns the children.
+         */
+        public SGView[] getChildren()
+        {
+            return _children;
+        }
+
+        /**
+         * Returns the child indexes.
+         */
+        public int[] getIndexes()
+        {
+            return _indexes;
+        }
+    }
 }
\ No newline at end of file
@@ -10,9 +10,12 @@ import snap.util.*;
  */
 public class SGPolygon extends SGParent {
 
-    // The explicit path associated with this view
+    // The explicit path associated with this view (never modified in place, so it can be shared with clones)
     protected Path2D _path;
 
+    // The path string command letters
+    private static final String PATH_COMMANDS = "MLQCZ";
+
     /**
      * Creates SGPolygon.
      */
@@ -72,9 +75,8 @@ public class SGPolygon extends SGParent {
     {
         XMLElement e = super.toXMLView(anArchiver); e.setName("polygon");
 
-        // Archive path
-        XMLElement pathXML = getXmlForPath(_path);
-        e.add(pathXML);
+        // Archive path (as compact path string)
+        e.add("path", getPathString(_path));
 
         // Return
         return e;
@@ -86,84 +88,181 @@ public class SGPolygon extends SGParent {
     protected void fromXMLView(XMLArchiver anArchiver, XMLElement anElement)
     {
         super.fromXMLView(anArchiver, anElement);
-        XMLElement pathXML = anElement.get("path");
-        _path = getPathFromXML(pathXML);
+
+        // Unarchive path from compact path string or legacy path element
+        String pathStr = anElement.getAttributeValue("path");
+        if (pathStr != null)
+            _path = getPathFromString(pathStr);
+        else {
+            XMLElement pathXML = anElement.get("path");
+            _path = getPathFromXML(pathXML);
+        }
     }
 
     /**
-     * Standard clone implementation.
+     * Standard clone implementation (path is shared, since it is replaced instead of modified).
      */
     public SGPolygon clone()
     {
-        SGPolygon clone = (SGPolygon) super.clone();
-        if (_path != null) clone._path = _path.clone();
-        return clone;
+        return (SGPolygon) super.clone();
     }
 
 
     /**
-     * XML archival for path.
+     * Returns a compact SVG-like string for path: Segments are M (move), L (line), Q (quad), C (cubic) and Z (close),
+     * each followed by its coords separated by spaces, e.g.: "M0 0L100 0Q150 50 100 100Z". Non-finite coords are
+     * written as NaN, Infinity or -Infinity.
      */
-    private XMLElement getXmlForPath(Path2D aPath)
+    public static String getPathString(Path2D aPath)
     {
-        // Get new element named path
-        XMLElement e = new XMLElement("path");
-
-        // Archive individual elements/points
+        StringBuilder sb = new StringBuilder();
         PathIter pathIter = aPath.getPathIter(null);
         double[] points = new double[6];
         while (pathIter.hasNext()) switch (pathIter.getNext(points)) {
+            case MoveTo: appendSeg(sb, 'M', points, 2); break;
+            case LineTo: appendSeg(sb, 'L', points, 2); break;
+            case QuadTo: appendSeg(sb, 'Q', points, 4); break;
+            case CubicTo: appendSeg(sb, 'C', points, 6); break;
+            case Close: sb.append('Z'); break;
+        }
+        return sb.toString();
+    }
 
-            // Handle MoveTo
-            case MoveTo:
-                XMLElement move = new XMLElement("mv");
-                move.add("x", points[0]);
-                move.add("y", points[1]);
-                e.add(move);
-                break;
-
-            // Handle LineTo
-            case LineTo:
-                XMLElement line = new XMLElement("ln");
-                line.add("x", points[0]);
-                line.add("y", points[1]);
-                e.add(line);
-                break;
-
-            // Handle QuadTo
-            case QuadTo:
-                XMLElement quad = new XMLElement("qd");
-                quad.add("cx", points[0]);
-                quad.add("cy", points[1]);
-                quad.add("x", points[2]);
-                quad.add("y", points[3]);
-                e.add(quad);
-                break;
-
-            // Handle CubicTo
-            case CubicTo:
-                XMLElement curve = new XMLElement("cv");
-                curve.add("cp1x", points[0]);
-                curve.add("cp1y", points[1]);
-                curve.add("cp2x", points[2]);
-                curve.add("cp2y", points[3]);
-                curve.add("x", points[4]);
-                curve.add("y", points[5]);
-                e.add(curve);
-                break;
-
-            // Handle Close
-            case Close:
-                XMLElement close = new XMLElement("cl");
-                e.add(close);
-                break;
+    /**
+     * Appends a path string segment for given command and coords.
+     */
+    private static void appendSeg(StringBuilder aSB, char aCmd, double[] thePoints, int aCount)
+    {
+        aSB.append(aCmd);
+        for (int i = 0; i < aCount; i++) {
+            if (i > 0) aSB.append(' ');
+            double value = thePoints[i];
+            long lval = (long) value;
+            if (lval == value && Math.abs(value) < 1e15) aSB.append(lval);
+            else aSB.append(value);
         }
+    }
 
-        return e;
+    /**
+     * Returns a path for given compact path string (see getPathString()). Parses in place, without substrings.
+     */
+    public static Path2D getPathFromString(String aStr)
+    {
+        Path2D path = new Path2D();
+        PathStringParser parser = new PathStringParser(aStr);
+        double[] pts = new double[6];
+
+        // Iterate over commands (a command letter can be omitted to repeat last command, or line after move, as in SVG)
+        for (char cmd = 0; parser.skipSeparators(); ) {
+            char c = aStr.charAt(parser._index);
+            if (PATH_COMMANDS.indexOf(c) >= 0) { cmd = c; parser._index++; }
+            switch (cmd) {
+                case 'M': parser.readNumbers(pts, 2); path.moveTo(pts[0], pts[1]); cmd = 'L'; break;
+                case 'L': parser.readNumbers(pts, 2); path.lineTo(pts[0], pts[1]); break;
+                case 'Q': parser.readNumbers(pts, 4); path.quadTo(pts[0], pts[1], pts[2], pts[3]); break;
+                case 'C':
+                    parser.readNumbers(pts, 6);
+                    path.curveTo(pts[0], pts[1], pts[2], pts[3], pts[4], pts[5]);
+                    break;
+                case 'Z': path.close(); cmd = 0; break;
+                default: throw new IllegalArgumentException("SGPolygon: Invalid path string at " + parser._index);
+            }
+        }
+
+        // Return
+        return path;
+    }
+
+    /**
+     * A simple parser to read numbers from path string.
+     */
+    private static class PathStringParser {
+
+        // The string and current index
+        String _str;
+        int _index;
+
+        /** Creates parser for given string. */
+        PathStringParser(String aStr)  { _str = aStr; }
+
+        /** Skips spaces and commas. Returns whether there are more chars. */
+        boolean skipSeparators()
+        {
+            while (_index < _str.length()) {
+                char c = _str.charAt(_index);
+                if (c != ' ' && c != ',' && !Character.isWhitespace(c)) return true;
+                _index++;
+            }
+            return false;
+        }
+
+        /** Reads given number of numbers into given array. */
+        void readNumbers(double[] theValues, int aCount)
+        {
+            for (int i = 0; i < aCount; i++) {
+                if (!skipSeparators())
+                    throw new IllegalArgumentException("SGPolygon: Unexpected end of path string");
+                theValues[i] = readNumber();
+            }
+        }
+
+        /** Reads a number at current index. */
+        double readNumber()
+        {
+            // Read sign
+            int start = _index, len = _str.length();
+            boolean neg = false;
+            char c = _str.charAt(_index);
+            if (c == '-' || c == '+') { neg = c == '-'; _index++; }
+
+            // Read non-finite values (as written by Double.toString())
+            if (_str.startsWith("NaN", _index)) { _index += 3; return Double.NaN; }
+            if (_str.startsWith("Infinity", _index)) {
+                _index += 8;
+                return neg ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+            }
+
+            // Read integer and fraction digits into mantissa
+            long mantissa = 0;
+            int digits = 0, fracDigits = 0;
+            boolean frac = false;
+            for ( ; _index < len; _index++) {
+                c = _str.charAt(_index);
+                if (c >= '0' && c <= '9') {
+                    mantissa = mantissa * 10 + (c - '0'); digits++;
+                    if (frac) fracDigits++;
+                }
+                else if (c == '.' && !frac) frac = true;
+                else break;
+            }
+
+            // If exponent or too many digits to be exact, fall back to Double.parseDouble
+            boolean exp = _index < len && (c == 'e' || c == 'E');
+            if (exp || digits > 15) {
+                if (exp) {
+                    _index++;
+                    if (_index < len && (_str.charAt(_index) == '-' || _str.charAt(_index) == '+')) _index++;
+                    while (_index < len && Character.isDigit(_str.charAt(_index))) _index++;
+                }
+                return Double.parseDouble(_str.substring(start, _index));
+            }
+
+            // Check for no digits
+            if (digits == 0)
+                throw new IllegalArgumentException("SGPolygon: Invalid number in path string at " + start);
+
+            // Return value (mantissa and power of ten are exact, so division is correctly rounded)
+            double value = fracDigits > 0 ? mantissa / POWERS_OF_TEN[fracDigits] : mantissa;
+            return neg ? -value : value;
+        }
+
+        // Exact powers of ten
+        static final double[] POWERS_OF_TEN = { 1, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+            1e13, 1e14, 1e15 };
     }
 
     /**
-     * XML unarchival for path.
+     * XML unarchival for path (legacy form with element per segment: mv, ln, qd, cv, cl).
      */
     public Path2D getPathFromXML(XMLElement anElement)
     {
@@ -340,6 +340,36 @@ public class SGSpringsView extends SGParent {
         return child;
     }
 
+    /**
+     * Override to initialize children springs.
+     */
+    public void addChildren(ChildrenAt theChildren)
+    {
+        super.addChildren(theChildren);
+        if (_springsDisabled) return;
+        if (_childLsnr == null) _childLsnr = pc -> childPropChanged(pc);
+        for (SGView child : theChildren.getChildren()) {
+            child.addPropChangeListener(_childLsnr);
+            addSpringInfo(child);
+        }
+        _cboxes = null;
+    }
+
+    /**
+     * Override to remove children springs.
+     */
+    public ChildrenAt removeChildren(Collection<SGView> theChildren)
+    {
+        ChildrenAt removed = super.removeChildren(theChildren);
+        if (removed == null || _springsDisabled) return removed;
+        for (SGView child : removed.getChildren()) {
+            child.removePropChangeListener(_childLsnr);
+            removeSpringInfo(child);
+        }
+        _cboxes = null;
+        return removed;
+    }
+
     /**
      * Override to paint dashed box around bounds.
      */
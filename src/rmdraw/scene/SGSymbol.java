@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package rmdraw.scene;
+import snap.gfx.PainterDVR;
+import snap.util.*;
+
+/**
+ * This class represents a named symbol: A view subtree that is defined once in a document (see SGDoc.getSymbol())
+ * and painted by any number of SGSymbolView instances, from a display list that is recorded once per symbol.
+ */
+public class SGSymbol implements XMLArchiver.Archivable {
+
+    // The symbol name
+    private String _name;
+
+    // The view that defines the symbol
+    private SGParent _view;
+
+    // The cached display list for symbol view
+    private PainterDVR _displayList;
+
+    /**
+     * Creates SGSymbol.
+     */
+    public SGSymbol()
+    {
+    }
+
+    /**
+     * Creates SGSymbol for given name and defining view.
+     */
+    public SGSymbol(String aName, SGParent aView)
+    {
+        _name = aName;
+        setView(aView);
+    }
+
+    /**
+     * Returns the symbol name.
+     */
+    public String getName()  { return _name; }
+
+    /**
+     * Returns the view that defines the symbol.
+     */
+    public SGParent getView()  { return _view; }
+
+    /**
+     * Sets the view that defines the symbol (and clears display list when it changes).
+     */
+    protected void setView(SGParent aView)
+    {
+        _view = aView;
+        _view.addPropChangeListener(pc -> _displayList = null);
+        _view.addDeepChangeListener((lsnr, pc) -> _displayList = null);
+        _displayList = null;
+    }
+
+    /**
+     * Returns the width of the symbol view.
+     */
+    public double getWidth()  { return _view.getWidth(); }
+
+    /**
+     * Returns the height of the symbol view.
+     */
+    public double getHeight()  { return _view.getHeight(); }
+
+    /**
+     * Returns the display list for symbol view (in symbol view coords).
+     */
+    public PainterDVR getDisplayList()
+    {
+        // If already set, just return
+        if (_displayList != null) return _displayList;
+
+        // Record symbol view painting and return
+        PainterDVR pdvr = new PainterDVR();
+        _view.layoutDeep();
+        _view.paintAll(pdvr);
+        return _displayList = pdvr;
+    }
+
+    /**
+     * Returns a copy of this symbol with a copy of symbol view.
+     */
+    public SGSymbol clone()
+    {
+        return new SGSymbol(_name, _view.cloneDeep());
+    }
+
+    /**
+     * XML archival.
+     */
+    public XMLElement toXML(XMLArchiver anArchiver)
+    {
+        XMLElement e = new XMLElement("symbol");
+        e.add("name", _name);
+        e.add(anArchiver.toXML(_view, this));
+        return e;
+    }
+
+    /**
+     * XML unarchival.
+     */
+    public SGSymbol fromXML(XMLArchiver anArchiver, XMLElement anElement)
+    {
+        _name = anElement.getAttributeValue("name");
+        setView((SGParent) anArchiver.fromXML(anElement.get(0), this));
+        return this;
+    }
+
+    /**
+     * Standard toString implementation.
+     */
+    public String toString()
+    {
+        return "SGSymbol { Name=" + _name + " }";
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package rmdraw.scene;
+import snap.gfx.Painter;
+import snap.util.*;
+
+/**
+ * This class is an SGView subclass that paints an instance of a symbol defined in the document (see SGSymbol).
+ * The instance only holds its own bounds, transform and view attributes (fill, border, opacity, effect), so repeated
+ * artwork is stored, unarchived and recorded for painting once per document.
+ * Per-instance overrides of symbol content (like replacing text or fill of a view in the symbol) aren't supported:
+ * Every instance paints the symbol exactly as defined.
+ */
+public class SGSymbolView extends SGView {
+
+    // The symbol name
+    private String _symbolName;
+
+    // The symbol, if set explicitly (otherwise, symbol is found in document by name)
+    private SGSymbol _symbol;
+
+    // Constants for properties
+    public static final String SymbolName_Prop = "SymbolName";
+
+    /**
+     * Creates SGSymbolView.
+     */
+    public SGSymbolView()
+    {
+    }
+
+    /**
+     * Creates SGSymbolView for given symbol (sized to symbol view).
+     */
+    public SGSymbolView(SGSymbol aSymbol)
+    {
+        _symbolName = aSymbol.getName();
+        _symbol = aSymbol;
+        setSize(aSymbol.getWidth(), aSymbol.getHeight());
+    }
+
+    /**
+     * Returns the symbol name.
+     */
+    public String getSymbolName()  { return _symbolName; }
+
+    /**
+     * Sets the symbol name.
+     */
+    public void setSymbolName(String aName)
+    {
+        if (SnapUtils.equals(aName, _symbolName)) return;
+        firePropChange(SymbolName_Prop, _symbolName, _symbolName = aName);
+        _symbol = null;
+        repaint();
+    }
+
+    /**
+     * Returns the symbol (from document, if available).
+     */
+    public SGSymbol getSymbol()
+    {
+        SGDoc doc = getDoc();
+        SGSymbol symbol = doc != null && _symbolName != null ? doc.getSymbol(_symbolName) : null;
+        return symbol != null ? symbol : _symbol;
+    }
+
+    /**
+     * Sets the symbol to use if document doesn't define symbol name (like for copies outside document).
+     */
+    public void setSymbol(SGSymbol aSymbol)
+    {
+        _symbol = aSymbol;
+        repaint();
+    }
+
+    /**
+     * Override to return symbol width.
+     */
+    protected double getPrefWidthImpl(double aHeight)
+    {
+        SGSymbol symbol = getSymbol();
+        return symbol != null ? symbol.getWidth() : super.getPrefWidthImpl(aHeight);
+    }
+
+    /**
+     * Override to return symbol height.
+     */
+    protected double getPrefHeightImpl(double aWidth)
+    {
+        SGSymbol symbol = getSymbol();
+        return symbol != null ? symbol.getHeight() : super.getPrefHeightImpl(aWidth);
+    }
+
+    /**
+     * Override to paint symbol display list (scaled to view bounds) after view fill and border.
+     */
+    protected void paintView(Painter aPntr)
+    {
+        // Do normal version
+        super.paintView(aPntr);
+
+        // Get symbol (just return if not found)
+        SGSymbol symbol = getSymbol();
+        if (symbol == null) return;
+
+        // Scale to view bounds and paint symbol display list
+        double sw = symbol.getWidth(), sh = symbol.getHeight();
+        aPntr.save();
+        if (sw > 0 && sh > 0 && (getWidth() != sw || getHeight() != sh))
+            aPntr.scale(getWidth() / sw, getHeight() / sh);
+        symbol.getDisplayList().exec(aPntr);
+        aPntr.restore();
+    }
+
+    /**
+     * XML archival.
+     */
+    public XMLElement toXML(XMLArchiver anArchiver)
+    {
+        XMLElement e = super.toXML(anArchiver);
+        e.setName("symbol-view");
+        if (_symbolName != null) e.add("symbol", _symbolName);
+        return e;
+    }
+
+    /**
+     * XML unarchival.
+     */
+    public Object fromXML(XMLArchiver anArchiver, XMLElement anElement)
+    {
+        super.fromXML(anArchiver, anElement);
+        _symbolName = anElement.getAttributeValue("symbol");
+        return this;
+    }
+}
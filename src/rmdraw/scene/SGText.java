@@ -28,6 +28,16 @@ public class SGText extends SGRect {
     // The RichText to be displayed
     private RichText _rtext;
 
+    // Whether RichText is shared with clones (copied on first call to getRichText())
+    private boolean _rtextShared;
+
+    // Whether RichText was returned by getRichText() or set by setRichText(), so it may be held and edited directly
+    // elsewhere (TextTool TextArea, TextBox) and can't be shared with clones
+    private boolean _rtextExposed;
+
+    // The archived RichText element, if RichText is unchanged since unarchival (RichText is built on first use)
+    private XMLElement _rtextXML;
+
     // The text margin (if different than default)
     private Insets _margin = getMarginDefault();
 
@@ -107,8 +117,34 @@ public class SGText extends SGRect {
      */
     public RichText getRichText()
     {
+        // If RichText is shared with clones, replace with private copy (copy-on-write)
+        if (_rtextShared) {
+            RichText rtext = _rtext.clone();
+            _rtext.removePropChangeListener(_richTextLsnr);
+            rtext.addPropChangeListener(_richTextLsnr);
+            _rtext = rtext;
+            _rtextShared = false;
+            if (_textBox != null) _textBox.setTextDoc(rtext);
+        }
+
+        // Return RichText (caller may hold and edit it directly, so it can't be shared with clones after this)
+        RichText rtext = getRichTextShared();
+        _rtextExposed = true;
+        return rtext;
+    }
+
+    /**
+     * Returns the RichText for read-only use (might be shared with clones).
+     */
+    protected RichText getRichTextShared()
+    {
+        // If already set, just return
         if (_rtext != null) return _rtext;
+
+        // Create RichText (unarchive from archived element, if available)
         _rtext = new RichText();
+        if (_rtextXML != null)
+            _rtext.fromXML(new RMArchiver(), _rtextXML);
         _rtext.addPropChangeListener(_richTextLsnr);
         return _rtext;
     }
@@ -124,6 +160,9 @@ public class SGText extends SGRect {
         // Stop listening to last RichText and start listening to new RichText
         if (_rtext != null) _rtext.removePropChangeListener(_richTextLsnr);
         if (aRT != null) aRT.addPropChangeListener(_richTextLsnr);
+        _rtextXML = null;
+        _rtextShared = false;
+        _rtextExposed = aRT != null;
 
         // Set value and fire property change, and reset cached HeightToFit
         firePropChange("XString", _rtext, _rtext = aRT);
@@ -137,7 +176,7 @@ public class SGText extends SGRect {
      */
     public int length()
     {
-        return getRichText().length();
+        return getRichTextShared().length();
     }
 
     /**
@@ -145,7 +184,7 @@ public class SGText extends SGRect {
      */
     public String getText()
     {
-        return getRichText().getString();
+        return getRichTextShared().getString();
     }
 
     /**
@@ -185,7 +224,7 @@ public class SGText extends SGRect {
      */
     public Font getFont()
     {
-        return getRichText().getFontForCharIndex(0);
+        return getRichTextShared().getFontForCharIndex(0);
     }
 
     /**
@@ -201,7 +240,7 @@ public class SGText extends SGRect {
      */
     public TextFormat getFormat()
     {
-        return getRichText().getRunForCharIndex(0).getFormat();
+        return getRichTextShared().getRunForCharIndex(0).getFormat();
     }
 
     /**
@@ -217,7 +256,7 @@ public class SGText extends SGRect {
      */
     public Color getTextColor()
     {
-        return getRichText().getRunForCharIndex(0).getColor();
+        return getRichTextShared().getRunForCharIndex(0).getColor();
     }
 
     /**
@@ -233,7 +272,7 @@ public class SGText extends SGRect {
      */
     public Border getTextBorder()
     {
-        return getRichText().getRunForCharIndex(0).getBorder();
+        return getRichTextShared().getRunForCharIndex(0).getBorder();
     }
 
     /**
@@ -249,7 +288,7 @@ public class SGText extends SGRect {
      */
     public HPos getAlignX()
     {
-        return getRichText().getLineStyleForCharIndex(0).getAlign();
+        return getRichTextShared().getLineStyleForCharIndex(0).getAlign();
     }
 
     /**
@@ -607,7 +646,7 @@ public class SGText extends SGRect {
     protected void updateTextBox()
     {
         // Update RichText
-        _textBox.setTextDoc(getRichText());
+        _textBox.setTextDoc(getRichTextShared());
 
         // Update bounds
         Insets pad = getMargin();
@@ -656,7 +695,7 @@ public class SGText extends SGRect {
         if (length() == 0) return 0; // Zero instead of getMarginLeft() + getMarginRight() so empty texts are hidden
 
         // Get text box width (from first visible char) and return that plus margin
-        double pw = getRichText().getPrefWidth(getVisibleStart());
+        double pw = getRichTextShared().getPrefWidth(getVisibleStart());
         return Math.ceil(getMarginLeft() + pw + getMarginRight());
     }
 
@@ -723,6 +762,7 @@ public class SGText extends SGRect {
      */
     protected void richTextDidPropChange(PropChange aPC)
     {
+        _rtextXML = null;
         _pcs.fireDeepChange(this, aPC);
         repaint();
     }
@@ -744,12 +784,23 @@ public class SGText extends SGRect {
      */
     public SGText clone()
     {
-        // Get normal view clone, clone XString, clear layout and return
+        // Get normal view clone, clear layout and give clone its own RichText listener
         SGText clone = (SGText) super.clone();
-        clone._rtext = null;
         clone._textBox = null;
-        clone._richTextLsnr = pc -> richTextDidPropChange(pc);
-        if (_rtext != null) clone.setRichText(_rtext.clone());
+        clone._richTextLsnr = pc -> clone.richTextDidPropChange(pc);
+
+        // If RichText might be edited directly elsewhere, give clone a copy (so clone doesn't see later edits)
+        clone._rtextExposed = false;
+        if (_rtextXML == null && _rtext != null && _rtextExposed) {
+            clone._rtext = _rtext.clone();
+            clone._rtext.addPropChangeListener(clone._richTextLsnr);
+            clone._rtextShared = false;
+        }
+
+        // Otherwise share RichText with clone (both copy it on first call to getRichText()), or archived element if set
+        else if (_rtextXML == null && _rtext != null)
+            _rtextShared = clone._rtextShared = true;
+        else clone._rtext = null;
         return clone;
     }
 
@@ -788,8 +839,8 @@ public class SGText extends SGRect {
         // Archive xstring
         if (!(this instanceof SGLinkedText)) {
 
-            // Get the xml element for the RichText
-            XMLElement xse = anArchiver.toXML(getRichText());
+            // Get the xml element for the RichText (just use archived element if RichText unchanged since unarchival)
+            XMLElement xse = _rtextXML != null ? _rtextXML : anArchiver.toXML(getRichTextShared());
 
             // Add individual child elements to this text's xml element
             for (int i = 0, iMax = xse.size(); i < iMax; i++)
@@ -845,9 +896,15 @@ public class SGText extends SGRect {
         setCoalesceNewlines(anElement.getAttributeBoolValue("coalesce-newlines"));
         if (anElement.getAttributeBoolValue("draw-border")) setDrawsSelectionRect(true);
 
-        // Unarchive RichText
-        if (!(this instanceof SGLinkedText))
-            getRichText().fromXML(anArchiver, anElement);
+        // Unarchive RichText lazily: Clear RichText created by basic unarchival and keep RichText child elements
+        if (!(this instanceof SGLinkedText)) {
+            if (_rtext != null) _rtext.removePropChangeListener(_richTextLsnr);
+            _rtext = null;
+            _rtextShared = false;
+            _rtextExposed = false;
+            _textBox = null;
+            _rtextXML = getRichTextXML(anArchiver, anElement);
+        }
 
         // Register for finish call
         anArchiver.getReference(anElement);
@@ -872,6 +929,29 @@ public class SGText extends SGRect {
         return this;
     }
 
+    /**
+     * Returns an element with the RichText child elements of given text element (skips elements used by view).
+     */
+    private static XMLElement getRichTextXML(XMLArchiver anArchiver, XMLElement anElement)
+    {
+        // Get view attributes (for indexes of border, fill and effect elements)
+        SGViewAttrs attrs = SGViewAttrs.get(anArchiver, anElement);
+        XMLElement xse = new XMLElement("xstring");
+
+        // Iterate over child elements and add RichText elements
+        for (int i = 0, iMax = anElement.size(); i < iMax; i++) {
+            XMLElement child = anElement.get(i);
+            String name = child.getName();
+            if (i == attrs.borderIndex || i == attrs.effectIndex) continue;
+            if (i == attrs.fillIndex && !name.equals("color")) continue;
+            if (name.equals("binding") || name.equals("property-key") || name.equals("path-shape")) continue;
+            xse.add(child);
+        }
+
+        // Return
+        return xse;
+    }
+
     /**
      * XML reference unarchival - to unarchive linked text.
      */
@@ -890,6 +970,6 @@ public class SGText extends SGRect {
     {
         String string = super.toString();
         string = string.substring(0, string.length() - 1);
-        return string + ", \"" + getRichText() + "\"]";
+        return string + ", \"" + getRichTextShared() + "\"]";
     }
 }
\ No newline at end of file
@@ -69,6 +69,10 @@ public class SGView extends PropObject implements Cloneable, Archivable, Key.Get
     private String _asize;
     protected Object _springInfo;
 
+    // The page layer that holds this view, if any, and the index in layer (see SGPageLayer.getChildIndex())
+    SGPageLayer _pageLayer;
+    int _pageLayerIndex;
+
     // Map to hold less used attributes (name, url, etc.)
     private SGViewSharedMap _attrMap = SHARED_MAP;
 
@@ -248,6 +252,17 @@ public class SGView extends PropObject implements Cloneable, Archivable, Key.Get
         setY(aY);
     }
 
+    /**
+     * Sets the X and Y location of the view without repaint (for parent that repaints moved children at once).
+     */
+    void setXYNoRepaint(double anX, double aY)
+    {
+        if (_x != anX)
+            firePropChange(X_Prop, _x, _x = anX);
+        if (_y != aY)
+            firePropChange(Y_Prop, _y, _y = aY);
+    }
+
     /**
      * Returns the size of the view.
      */
@@ -1015,8 +1030,16 @@ public class SGView extends PropObject implements Cloneable, Archivable, Key.Get
     public void setName(String aName)
     {
         if (SnapUtils.equals(aName, getName())) return;
-        Object oldVal = put("Name", StringUtils.min(aName));
-        firePropChange("Name", oldVal, StringUtils.min(aName));
+        String newVal = StringUtils.min(aName);
+        Object oldVal = put("Name", newVal);
+
+        // Update document name index
+        SGDoc doc = getDoc();
+        if (doc != null && doc != this)
+            doc.viewNameDidChange(this, (String) oldVal, newVal);
+
+        // Fire property change
+        firePropChange("Name", oldVal, newVal);
     }
 
     /**
@@ -1108,7 +1131,16 @@ public class SGView extends PropObject implements Cloneable, Archivable, Key.Get
      */
     public void setParent(SGParent aView)
     {
+        // Set parent, getting old and new document
+        SGDoc oldDoc = _parent != null ? _parent.getDoc() : null;
         _parent = aView;
+        SGDoc newDoc = aView != null ? aView.getDoc() : null;
+
+        // If document changed, update document indexes
+        if (oldDoc != newDoc) {
+            if (oldDoc != null) oldDoc.viewWasRemoved(this);
+            if (newDoc != null) newDoc.viewWasAdded(this);
+        }
     }
 
     /**
@@ -1818,8 +1850,9 @@ public class SGView extends PropObject implements Cloneable, Archivable, Key.Get
             throw new RuntimeException(e);
         }
 
-        // Clear Parent
+        // Clear Parent and PageLayer
         clone._parent = null;
+        clone._pageLayer = null;
 
         // Clone Rotate/Scale/Skew array
         if (_rss != null) clone._rss = Arrays.copyOf(_rss, _rss.length);
@@ -1908,6 +1941,16 @@ public class SGView extends PropObject implements Cloneable, Archivable, Key.Get
         sceneGraph.repaintSceneForView(this);
     }
 
+    /**
+     * Called to register given rect (in view coords) for repaint.
+     */
+    public void repaint(Rect aRect)
+    {
+        SceneGraph sceneGraph = getSceneGraph();
+        if (sceneGraph == null) return;
+        sceneGraph.repaintSceneForRect(this, aRect);
+    }
+
     /**
      * Editor method - indicates whether this view can be super selected.
      */
@@ -2328,68 +2371,73 @@ public class SGView extends PropObject implements Cloneable, Archivable, Key.Get
      */
     public Object fromXML(XMLArchiver anArchiver, XMLElement anElement)
     {
+        // Decode basic attributes and child element indexes in one pass
+        SGViewAttrs attrs = SGViewAttrs.get(anArchiver, anElement);
+
         // Unarchive name
-        setName(anElement.getAttributeValue("name"));
+        setName(attrs.name);
 
         // Unarchive X, Y, Width, Height
-        _x = anElement.getAttributeFloatValue("x", 0);
-        _y = anElement.getAttributeFloatValue("y", 0);
-        _width = anElement.getAttributeFloatValue("width", 0);
-        _height = anElement.getAttributeFloatValue("height", 0);
+        _x = attrs.x;
+        _y = attrs.y;
+        _width = attrs.width;
+        _height = attrs.height;
 
         // Unarchive Roll, ScaleX, ScaleY, SkewX, SkewY
-        setRoll(anElement.getAttributeFloatValue("roll"));
-        setScaleX(anElement.getAttributeFloatValue("scalex", 1));
-        setScaleY(anElement.getAttributeFloatValue("scaley", 1));
-        setSkewX(anElement.getAttributeFloatValue("skewx", 0));
-        setSkewY(anElement.getAttributeFloatValue("skewy", 0));
+        setRoll(attrs.roll);
+        setScaleX(attrs.scaleX);
+        setScaleY(attrs.scaleY);
+        setSkewX(attrs.skewX);
+        setSkewY(attrs.skewY);
 
         // Unarchive Border
-        for (int i = anArchiver.indexOf(anElement, Border.class); i >= 0; i = -1) {
-            Border border = (Border) anArchiver.fromXML(anElement.get(i), this);
+        if (attrs.borderIndex >= 0) {
+            Border border = (Border) anArchiver.fromXML(anElement.get(attrs.borderIndex), this);
             setBorder(border);
         }
 
-        // Unarchive Fill
-        for (int i = anArchiver.indexOf(anElement, Paint.class); i >= 0; i = -1) {
-            XMLElement e = anElement.get(i);
-            if (e.getName().equals("color") && this instanceof SGText)
-                continue; // Bogus till we figure out RMFill to Paint stuff!
-            Paint fill = (Paint) anArchiver.fromXML(e, this);
-            setFill(fill);
+        // Unarchive Fill (skip color for text - bogus till we figure out RMFill to Paint stuff!)
+        if (attrs.fillIndex >= 0) {
+            XMLElement e = anElement.get(attrs.fillIndex);
+            if (!e.getName().equals("color") || !(this instanceof SGText)) {
+                Paint fill = (Paint) anArchiver.fromXML(e, this);
+                setFill(fill);
+            }
         }
 
         // Unarchive Effect
-        for (int i = anArchiver.indexOf(anElement, Effect.class); i >= 0; i = -1) {
-            Effect fill = (Effect) anArchiver.fromXML(anElement.get(i), this);
+        if (attrs.effectIndex >= 0) {
+            Effect fill = (Effect) anArchiver.fromXML(anElement.get(attrs.effectIndex), this);
             setEffect(fill);
         }
 
         // Unarchive font
-        XMLElement fontXML = anElement.getElement("font");
-        if (fontXML != null)
-            setFont((Font) anArchiver.fromXML(fontXML, this));
+        if (attrs.fontIndex >= 0)
+            setFont((Font) anArchiver.fromXML(anElement.get(attrs.fontIndex), this));
 
         // Unarchive Opacity, Visible
-        setOpacity(anElement.getAttributeFloatValue("opacity", 1));
-        if (anElement.hasAttribute("visible")) _visible = anElement.getAttributeBoolValue("visible");
+        setOpacity(attrs.opacity);
+        if (attrs.visible != null) _visible = attrs.visible;
 
         // Unarchive URL
-        setURL(anElement.getAttributeValue("url"));
+        setURL(attrs.url);
 
         // Unarchive MinWidth, MinHeight, PrefWidth, PrefHeight
-        if (anElement.hasAttribute(MinWidth_Prop)) setMinWidth(anElement.getAttributeFloatValue(MinWidth_Prop));
-        if (anElement.hasAttribute(MinHeight_Prop)) setMinHeight(anElement.getAttributeFloatValue(MinHeight_Prop));
-        if (anElement.hasAttribute(PrefWidth_Prop)) setPrefWidth(anElement.getAttributeFloatValue(PrefWidth_Prop));
-        if (anElement.hasAttribute(PrefHeight_Prop)) setPrefHeight(anElement.getAttributeFloatValue(PrefHeight_Prop));
+        if (!Double.isNaN(attrs.minWidth)) setMinWidth(attrs.minWidth);
+        if (!Double.isNaN(attrs.minHeight)) setMinHeight(attrs.minHeight);
+        if (!Double.isNaN(attrs.prefWidth)) setPrefWidth(attrs.prefWidth);
+        if (!Double.isNaN(attrs.prefHeight)) setPrefHeight(attrs.prefHeight);
 
         // Unarchive Autosizing
-        String asize = anElement.getAttributeValue("asize");
-        if (asize == null) asize = anElement.getAttributeValue("LayoutInfo");
+        String asize = attrs.asize != null ? attrs.asize : attrs.layoutInfo;
         if (asize != null) setAutosizing(asize);
 
         // Unarchive Locked
-        setLocked(anElement.getAttributeBoolValue("locked"));
+        setLocked(attrs.locked);
+
+        // If no bindings, just return
+        if (!attrs.hasBindings)
+            return this;
 
         // Unarchive bindings
         for (int i = anElement.indexOf("binding"); i >= 0; i = anElement.indexOf("binding", i + 1)) {
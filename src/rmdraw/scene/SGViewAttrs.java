@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package rmdraw.scene;
+import snap.gfx.*;
+import snap.util.*;
+
+/**
+ * This class decodes the basic SGView attributes of an archived view element in a single pass over its attributes
+ * (instead of a linear attribute search per attribute), and indexes the child elements SGView unarchival looks for
+ * (Border, Paint, Effect, font, bindings) in a single pass over its children.
+ */
+public class SGViewAttrs {
+
+    // The name, URL and autosizing
+    String name, url, asize, layoutInfo;
+
+    // The bounds
+    double x, y, width, height;
+
+    // The roll, scale and skew
+    double roll, scaleX = 1, scaleY = 1, skewX, skewY;
+
+    // The opacity
+    double opacity = 1;
+
+    // The min/pref sizes (NaN if not set)
+    double minWidth = Double.NaN, minHeight = Double.NaN, prefWidth = Double.NaN, prefHeight = Double.NaN;
+
+    // The visible value (null if not set) and locked
+    Boolean visible;
+    boolean locked;
+
+    // The indexes of first Border, Paint, Effect and font child elements (or -1)
+    int borderIndex = -1, fillIndex = -1, effectIndex = -1, fontIndex = -1;
+
+    // Whether element has binding or legacy property-key child elements
+    boolean hasBindings;
+
+    // The child element kinds for element classes
+    private static final int KIND_OTHER = 0, KIND_BORDER = 1, KIND_PAINT = 2, KIND_EFFECT = 3;
+
+    // The element these attributes were decoded from
+    private XMLElement _element;
+
+    // The cached child element kinds by element class
+    private static ClassValue<Integer> _kinds = new ClassValue<Integer>() {
+        protected Integer computeValue(Class<?> aClass)
+        {
+            return Border.class.isAssignableFrom(aClass) ? KIND_BORDER : Paint.class.isAssignableFrom(aClass) ?
+                KIND_PAINT : Effect.class.isAssignableFrom(aClass) ? KIND_EFFECT : KIND_OTHER;
+        }
+    };
+
+    // The last decoded attributes for each thread (so subclass unarchival can reuse them)
+    private static ThreadLocal<SGViewAttrs> _last = new ThreadLocal<>();
+
+    /**
+     * Creates SGViewAttrs for given element.
+     */
+    public SGViewAttrs(XMLArchiver anArchiver, XMLElement anElement)
+    {
+        _element = anElement;
+        decodeAttributes(anElement);
+        indexChildren(anArchiver, anElement);
+    }
+
+    /**
+     * Returns the SGViewAttrs for given element (reusing last decoded on this thread, if for same element).
+     */
+    public static SGViewAttrs get(XMLArchiver anArchiver, XMLElement anElement)
+    {
+        SGViewAttrs attrs = _last.get();
+        if (attrs == null || attrs._element != anElement)
+            _last.set(attrs = new SGViewAttrs(anArchiver, anElement));
+        return attrs;
+    }
+
+    /**
+     * Decodes known attributes in one pass.
+     */
+    private void decodeAttributes(XMLElement anElement)
+    {
+        for (int i = 0, iMax = anElement.getAttributeCount(); i < iMax; i++) {
+            XMLAttribute attr = anElement.getAttribute(i);
+            String value = attr.getValue();
+            switch (attr.getName()) {
+                case "name": name = value; break;
+                case "x": x = floatValue(value); break;
+                case "y": y = floatValue(value); break;
+                case "width": width = floatValue(value); break;
+                case "height": height = floatValue(value); break;
+                case "roll": roll = floatValue(value); break;
+                case "scalex": scaleX = floatValue(value); break;
+                case "scaley": scaleY = floatValue(value); break;
+                case "skewx": skewX = floatValue(value); break;
+                case "skewy": skewY = floatValue(value); break;
+                case "opacity": opacity = floatValue(value); break;
+                case "visible": visible = SnapUtils.boolValue(value); break;
+                case "url": url = value; break;
+                case SGView.MinWidth_Prop: minWidth = floatValue(value); break;
+                case SGView.MinHeight_Prop: minHeight = floatValue(value); break;
+                case SGView.PrefWidth_Prop: prefWidth = floatValue(value); break;
+                case SGView.PrefHeight_Prop: prefHeight = floatValue(value); break;
+                case "asize": asize = value; break;
+                case "LayoutInfo": layoutInfo = value; break;
+                case "locked": locked = SnapUtils.boolValue(value); break;
+            }
+        }
+    }
+
+    /**
+     * Indexes known child elements in one pass.
+     */
+    private void indexChildren(XMLArchiver anArchiver, XMLElement anElement)
+    {
+        for (int i = 0, iMax = anElement.size(); i < iMax; i++) {
+
+            // Handle font, binding and property-key by name
+            String cname = anElement.get(i).getName();
+            if (cname.equals("font")) {
+                if (fontIndex < 0) fontIndex = i;
+            }
+            else if (cname.equals("binding") || cname.equals("property-key"))
+                hasBindings = true;
+
+            // Handle Border, Paint, Effect by element class (font is also mapped to a class, so check it too)
+            switch (getKind(anArchiver.getClass(cname))) {
+                case KIND_BORDER: if (borderIndex < 0) borderIndex = i; break;
+                case KIND_PAINT: if (fillIndex < 0) fillIndex = i; break;
+                case KIND_EFFECT: if (effectIndex < 0) effectIndex = i; break;
+            }
+        }
+    }
+
+    /**
+     * Returns the child element kind for given element class (cached per class, without a lock).
+     */
+    private static int getKind(Class aClass)
+    {
+        return aClass != null ? _kinds.get(aClass) : KIND_OTHER;
+    }
+
+    /**
+     * Returns the float value of given string (as getAttributeFloatValue() would).
+     */
+    private static float floatValue(String aStr)
+    {
+        try { return Float.parseFloat(aStr); }
+        catch (NumberFormatException e) { return (float) SnapUtils.doubleValue(aStr); }
+    }
+}
@@ -251,6 +251,14 @@ public class SGViewUtils {
      * Returns an image for the given view, with given background color (null for clear) and scale.
      */
     public static Image createImage(SGView aView, Color aColor)
+    {
+        return createImage(aView, aColor, 2);
+    }
+
+    /**
+     * Returns an image for the given view, with given background color (null for clear) and image scale.
+     */
+    public static Image createImage(SGView aView, Color aColor, double aScale)
     {
         // Get marked bounds for view
         Rect bounds = aView instanceof SGPage ? aView.getBounds() : aView.getBoundsMarkedDeep();
@@ -264,7 +272,7 @@ public class SGViewUtils {
             return Image.get(1, 1, false);
 
         // Create new image
-        Image img = Image.getImageForSizeAndScale(w, h, aColor == null || aColor.getAlphaInt() != 255, 2);
+        Image img = Image.getImageForSizeAndScale(w, h, aColor == null || aColor.getAlphaInt() != 255, aScale);
 
         // Create painter and configure
         Painter pntr = img.getPainter();
@@ -2,11 +2,14 @@
  * Copyright (c) 2010, ReportMill Software. All rights reserved.
  */
 package rmdraw.scene;
+import snap.geom.Rect;
 import snap.gfx.*;
 import snap.props.DeepChangeListener;
 import snap.props.PropChange;
 import snap.props.PropChangeListener;
 import snap.props.Undoer;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The root of a hierarchy of views.
@@ -34,6 +37,12 @@ public class SceneGraph {
     // Whether SceneGraph is currently painting
     private boolean _ptg;
 
+    // The nesting depth of deep change batch scopes
+    private int _batchDepth;
+
+    // The deep changes buffered by current batch scope
+    private List<PropChange> _batchChanges;
+
     /**
      * Creates a SceneGraph for given SceneGraph.Client.
      */
@@ -213,6 +222,27 @@ public class SceneGraph {
         _client.sceneNeedsRepaint(aView);
     }
 
+    /**
+     * Called by views to request paint of given rect (in view coords), like for the union of a bulk change.
+     */
+    protected void repaintSceneForRect(SGView aView, Rect aRect)
+    {
+        // If painting, complain that someone is calling repaint during paint (should never happen, but good to check)
+        if (_ptg)
+            System.err.println("SceneGraph.repaint(): called during painting");
+
+        // Forward to viewer
+        _client.sceneNeedsRepaint(aView, aRect);
+    }
+
+    /**
+     * Returns the visible rect of root view (in root view coords), or null if not showing.
+     */
+    public Rect getVisRect()
+    {
+        return _client.getSceneVisRect();
+    }
+
     /**
      * Paints the Scene.
      */
@@ -243,9 +273,61 @@ public class SceneGraph {
      */
     private void viewPropChangedDeep(PropChange aPC)
     {
+        // If batching deep changes, buffer change (and tell client, since change source may not be locatable later)
+        if (_batchDepth > 0) {
+            _batchChanges.add(aPC);
+            if (_client.isSceneDeepChangeListener())
+                _client.sceneViewPropChangeBatched(aPC);
+            return;
+        }
+
         _client.sceneViewPropChangedDeep(aPC);
     }
 
+    /**
+     * Starts a deep change batch scope: Until matching endDeepChangeBatch(), view deep changes that reach the scene
+     * are buffered instead of going to client, then delivered once to client as an ordered list. Changes still
+     * propagate up the view hierarchy, so deep listeners on views in between get them as usual. Scopes can nest.
+     */
+    public void beginDeepChangeBatch()
+    {
+        if (_batchDepth++ == 0)
+            _batchChanges = new ArrayList<>();
+    }
+
+    /**
+     * Ends a deep change batch scope (delivers buffered changes if outermost scope).
+     */
+    public void endDeepChangeBatch()
+    {
+        // If still in outer scope, just return
+        if (--_batchDepth > 0) return;
+
+        // Get buffered changes and deliver
+        List<PropChange> changes = _batchChanges;
+        _batchChanges = null;
+        if (changes.size() > 0 && _client.isSceneDeepChangeListener())
+            _client.sceneViewPropChangesDeep(changes);
+    }
+
+    /**
+     * Runs given runnable in a deep change batch scope.
+     */
+    public void runWithDeepChangeBatch(Runnable aRun)
+    {
+        beginDeepChangeBatch();
+        try { aRun.run(); }
+        finally { endDeepChangeBatch(); }
+    }
+
+    /**
+     * Returns whether deep changes are currently being batched.
+     */
+    public boolean isDeepChangeBatching()
+    {
+        return _batchDepth > 0;
+    }
+
     /**
      * Undoer convenience - disable the undoer.
      */
@@ -347,11 +429,27 @@ public class SceneGraph {
          */
         void sceneNeedsRelayout();
 
+        /**
+         * Called to get the visible rect of SceneGraph root view (in root view coords), or null if not showing.
+         */
+        default Rect getSceneVisRect()
+        {
+            return null;
+        }
+
         /**
          * Called when SceneGraph view needs repaint.
          */
         void sceneNeedsRepaint(SGView aShape);
 
+        /**
+         * Called when SceneGraph view needs repaint for given rect in view coords.
+         */
+        default void sceneNeedsRepaint(SGView aShape, Rect aRect)
+        {
+            sceneNeedsRepaint(aShape);
+        }
+
         /**
          * Called when SceneGraph View has prop change.
          */
@@ -372,6 +470,22 @@ public class SceneGraph {
         {
         }
 
+        /**
+         * Called when SceneGraph View has prop change that is buffered in a deep change batch.
+         */
+        default void sceneViewPropChangeBatched(PropChange aPC)
+        {
+        }
+
+        /**
+         * Called when SceneGraph Views have prop changes in a deep change batch (in order).
+         */
+        default void sceneViewPropChangesDeep(List<PropChange> theChanges)
+        {
+            for (PropChange pc : theChanges)
+                sceneViewPropChangedDeep(pc);
+        }
+
         /**
          * Returns whether SceneGraph is being edited.
          */
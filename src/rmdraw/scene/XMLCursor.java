@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package rmdraw.scene;
+import java.io.InputStream;
+import java.io.StringReader;
+import javax.xml.stream.*;
+import snap.util.XMLElement;
+
+/**
+ * A lightweight forward-only cursor over an XML stream (backed by a StAX pull parser), that lets callers walk
+ * elements as they stream by and only build XMLElements for the subtrees they want.
+ */
+public class XMLCursor {
+
+    // The pull parser
+    private XMLStreamReader _reader;
+
+    // The shared input factory
+    private static XMLInputFactory _factory;
+
+    /**
+     * Creates XMLCursor for given stream.
+     */
+    public XMLCursor(InputStream aStream) throws XMLStreamException
+    {
+        _reader = getFactory().createXMLStreamReader(aStream);
+    }
+
+    /**
+     * Creates XMLCursor for given XML string.
+     */
+    public XMLCursor(String aString) throws XMLStreamException
+    {
+        _reader = getFactory().createXMLStreamReader(new StringReader(aString));
+    }
+
+    /**
+     * Moves to the root element start. Returns false if there is no root element.
+     */
+    public boolean nextRoot() throws XMLStreamException
+    {
+        while (_reader.hasNext())
+            if (_reader.next() == XMLStreamConstants.START_ELEMENT)
+                return true;
+        return false;
+    }
+
+    /**
+     * Moves to the start of the next child of current element. Returns false if current element ended instead.
+     */
+    public boolean nextChild() throws XMLStreamException
+    {
+        while (_reader.hasNext()) {
+            int event = _reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) return true;
+            if (event == XMLStreamConstants.END_ELEMENT) return false;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the name of current element.
+     */
+    public String getName()
+    {
+        return _reader.getLocalName();
+    }
+
+    /**
+     * Returns an XMLElement for current element start with attributes only (cursor stays inside element).
+     */
+    public XMLElement readStartElement()
+    {
+        XMLElement e = new XMLElement(getName());
+        for (int i = 0, iMax = _reader.getAttributeCount(); i < iMax; i++)
+            e.add(_reader.getAttributeLocalName(i), _reader.getAttributeValue(i));
+        return e;
+    }
+
+    /**
+     * Returns an XMLElement for current element and its subtree (cursor is left at element end).
+     */
+    public XMLElement readElement() throws XMLStreamException
+    {
+        // Create element with attributes
+        XMLElement e = readStartElement();
+        StringBuilder text = null;
+
+        // Read child elements and text until element end
+        for (int event = _reader.next(); event != XMLStreamConstants.END_ELEMENT; event = _reader.next()) {
+            if (event == XMLStreamConstants.START_ELEMENT)
+                e.add(readElement());
+            else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                if (text == null) text = new StringBuilder();
+                text.append(_reader.getText());
+            }
+        }
+
+        // Set text value as is, unless just whitespace between child elements (indentation)
+        if (text != null && (e.size() == 0 || text.toString().trim().length() > 0))
+            e.setValue(text.toString());
+        return e;
+    }
+
+    /**
+     * Returns XML text for current element and its subtree (cursor is left at element end).
+     */
+    public String readElementString() throws XMLStreamException
+    {
+        StringBuilder sb = new StringBuilder();
+        appendElementString(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends XML text for current element and its subtree to given StringBuilder.
+     */
+    private void appendElementString(StringBuilder aSB) throws XMLStreamException
+    {
+        // Append start tag with attributes
+        String name = getName();
+        aSB.append('<').append(name);
+        for (int i = 0, iMax = _reader.getAttributeCount(); i < iMax; i++) {
+            aSB.append(' ').append(_reader.getAttributeLocalName(i)).append("=\"");
+            appendEscaped(aSB, _reader.getAttributeValue(i), true);
+            aSB.append('"');
+        }
+        aSB.append('>');
+
+        // Append child elements and text until element end
+        for (int event = _reader.next(); event != XMLStreamConstants.END_ELEMENT; event = _reader.next()) {
+            if (event == XMLStreamConstants.START_ELEMENT)
+                appendElementString(aSB);
+            else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)
+                appendEscaped(aSB, _reader.getText(), false);
+        }
+
+        // Append end tag
+        aSB.append("</").append(name).append('>');
+    }
+
+    /**
+     * Appends given string to given StringBuilder with XML special chars escaped.
+     */
+    private static void appendEscaped(StringBuilder aSB, String aStr, boolean isAttr)
+    {
+        for (int i = 0, iMax = aStr.length(); i < iMax; i++) {
+            char c = aStr.charAt(i);
+            switch (c) {
+                case '&': aSB.append("&amp;"); break;
+                case '<': aSB.append("&lt;"); break;
+                case '>': aSB.append("&gt;"); break;
+                case '"': aSB.append(isAttr ? "&quot;" : "\""); break;
+                case '\n': aSB.append(isAttr ? "&#10;" : "\n"); break;
+                case '\r': aSB.append(isAttr ? "&#13;" : "\r"); break;
+                case '\t': aSB.append(isAttr ? "&#9;" : "\t"); break;
+                default: aSB.append(c);
+            }
+        }
+    }
+
+    /**
+     * Skips current element and its subtree (cursor is left at element end).
+     */
+    public void skipElement() throws XMLStreamException
+    {
+        for (int depth = 1; depth > 0; ) {
+            int event = _reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) depth++;
+            else if (event == XMLStreamConstants.END_ELEMENT) depth--;
+        }
+    }
+
+    /**
+     * Closes the cursor.
+     */
+    public void close()
+    {
+        try { _reader.close(); }
+        catch (XMLStreamException e) { }
+    }
+
+    /**
+     * Returns an XMLElement for given element XML string.
+     */
+    public static XMLElement readElement(String aString)
+    {
+        try {
+            XMLCursor cursor = new XMLCursor(aString);
+            cursor.nextRoot();
+            XMLElement e = cursor.readElement();
+            cursor.close();
+            return e;
+        }
+        catch (XMLStreamException e) { throw new RuntimeException(e); }
+    }
+
+    /**
+     * Returns the shared input factory.
+     */
+    private static synchronized XMLInputFactory getFactory()
+    {
+        if (_factory != null) return _factory;
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        return _factory = factory;
+    }
+}
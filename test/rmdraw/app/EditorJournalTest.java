@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package rmdraw.app;
+import java.io.*;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Test;
+import rmdraw.scene.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for EditorJournal change records.
+ */
+public class EditorJournalTest {
+
+    // The document file
+    private File _docFile;
+
+    /**
+     * Deletes document and journal files.
+     */
+    @After
+    public void tearDown()
+    {
+        if (_docFile == null) return;
+        EditorJournal.getJournalFile(_docFile).delete();
+        _docFile.delete();
+    }
+
+    /**
+     * Tests that journaled changes applied to saved document give edited document.
+     */
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        // Create and save document, then edit with journal
+        SGDoc doc = createDoc();
+        int count = editWithJournal(doc);
+
+        // Read saved document and journal changes, apply and check document matches edited document
+        SGDoc doc2 = SGDoc.getDocFromSource(Files.readAllBytes(_docFile.toPath()));
+        EditorJournal journal2 = new EditorJournal(doc2, _docFile);
+        List<byte[]> changes = journal2.openAndReplay();
+        assertEquals(count, changes.size());
+        assertFalse(journal2.isRecoveryIncomplete());
+        journal2.applyChanges(changes);
+        assertEquals(new String(doc.getBytes()), new String(doc2.getBytes()));
+        journal2.close();
+    }
+
+    /**
+     * Tests that a partial last record is dropped.
+     */
+    @Test
+    public void testTruncatedTail() throws IOException
+    {
+        // Create and save document, edit with journal and cut off end of last record
+        int count = editWithJournal(createDoc());
+        File file = EditorJournal.getJournalFile(_docFile);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) { raf.setLength(raf.length() - 3); }
+
+        // Check last record is dropped (and journal is truncated to last whole record)
+        long length = file.length();
+        EditorJournal journal2 = new EditorJournal(SGDoc.getDocFromSource(Files.readAllBytes(_docFile.toPath())),
+            _docFile);
+        assertEquals(count - 1, journal2.openAndReplay().size());
+        assertTrue(journal2.getLength() < length);
+        journal2.close();
+    }
+
+    /**
+     * Tests that a last record with bad CRC is dropped.
+     */
+    @Test
+    public void testBadChecksum() throws IOException
+    {
+        // Create and save document, edit with journal and change a byte of last record payload
+        int count = editWithJournal(createDoc());
+        File file = EditorJournal.getJournalFile(_docFile);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 5);
+            int b = raf.read();
+            raf.seek(raf.length() - 5);
+            raf.write(b ^ 0xff);
+        }
+
+        // Check last record is dropped
+        EditorJournal journal2 = new EditorJournal(SGDoc.getDocFromSource(Files.readAllBytes(_docFile.toPath())),
+            _docFile);
+        assertEquals(count - 1, journal2.openAndReplay().size());
+        journal2.close();
+    }
+
+    /**
+     * Tests that an incomplete journal is reported as incomplete on open.
+     */
+    @Test
+    public void testIncomplete() throws IOException
+    {
+        // Create and save document, open journal, add change and mark incomplete
+        SGDoc doc = createDoc();
+        EditorJournal journal = new EditorJournal(doc, _docFile);
+        journal.openAndReplay();
+        doc.addDeepChangeListener((lsnr, pc) -> journal.addChange(pc));
+        doc.getPage(0).getChild(0).setX(100);
+        journal.setIncomplete();
+        doc.getPage(0).getChild(0).setX(200);
+        journal.close();
+
+        // Check journal has first change and is incomplete
+        EditorJournal journal2 = new EditorJournal(SGDoc.getDocFromSource(Files.readAllBytes(_docFile.toPath())),
+            _docFile);
+        assertEquals(1, journal2.openAndReplay().size());
+        assertTrue(journal2.isRecoveryIncomplete());
+        journal2.close();
+    }
+
+    /**
+     * Returns a new document with a page with a rect, saved to document file.
+     */
+    private SGDoc createDoc() throws IOException
+    {
+        // Create doc
+        SGDoc doc = new SGDoc(612, 792);
+        SGRect rect = new SGRect();
+        rect.setName("Rect1");
+        rect.setBounds(36, 36, 100, 100);
+        doc.getPage(0).addChild(rect);
+
+        // Write to document file
+        _docFile = File.createTempFile("EditorJournalTest", ".rpt");
+        Files.write(_docFile.toPath(), doc.getBytes());
+        return doc;
+    }
+
+    /**
+     * Opens journal for given document, makes changes of each value type and closes journal. Returns change count.
+     */
+    private int editWithJournal(SGDoc aDoc) throws IOException
+    {
+        // Open journal and add changes from document
+        EditorJournal journal = new EditorJournal(aDoc, _docFile);
+        journal.openAndReplay();
+        aDoc.addDeepChangeListener((lsnr, pc) -> journal.addChange(pc));
+
+        // Make changes: Double, String, Boolean, children add and move, children remove
+        SGPage page = aDoc.getPage(0);
+        SGView rect = page.getChild(0);
+        rect.setX(72);
+        rect.setName("Renamed");
+        rect.setLocked(true);
+        SGRect rect2 = new SGRect();
+        rect2.setBounds(200, 200, 50, 50);
+        page.addChildren(Arrays.asList(rect2), 1);
+        page.offsetChildrenXY(Arrays.asList(rect, rect2), 10, 20);
+        page.removeChildren(Arrays.asList(rect));
+
+        // Check journal is complete and close
+        assertFalse(journal.isIncomplete());
+        int count = journal.getChangeCount();
+        journal.close();
+        return count;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package rmdraw.app;
+import java.util.Arrays;
+import org.junit.Test;
+import rmdraw.scene.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for EditorUndoer.
+ */
+public class EditorUndoerTest {
+
+    /**
+     * Tests that two child removals from same parent in one undo set are both restored by undo.
+     */
+    @Test
+    public void testUndoRemoveTwice()
+    {
+        // Create parent with three children and undoer
+        SGParent parent = new SGParent();
+        SGView a = newRect("A"), b = newRect("B"), c = newRect("C");
+        parent.addChildren(Arrays.asList(a, b, c), 0);
+        EditorUndoer undoer = newUndoer(parent);
+
+        // Remove two children in separate changes, then undo
+        parent.removeChildren(Arrays.asList(a));
+        parent.removeChildren(Arrays.asList(b));
+        assertEquals(2, undoer.getActiveUndoSet().getChangeCount());
+        undoer.saveChanges();
+        undoer.undo();
+
+        // Check children are restored
+        assertArrayEquals(new SGView[] { a, b, c }, parent.getChildArray());
+    }
+
+    /**
+     * Tests that moving a child within same parent (remove and re-add in one undo set) is reverted by undo.
+     */
+    @Test
+    public void testUndoRemoveAndReAdd()
+    {
+        // Create parent with three children and undoer
+        SGParent parent = new SGParent();
+        SGView a = newRect("A"), b = newRect("B"), c = newRect("C");
+        parent.addChildren(Arrays.asList(a, b, c), 0);
+        EditorUndoer undoer = newUndoer(parent);
+
+        // Move first child to end (removes and re-adds on same parent), then remove another and undo
+        parent.addChildren(Arrays.asList(a), 3);
+        parent.removeChildren(Arrays.asList(b));
+        assertArrayEquals(new SGView[] { c, a }, parent.getChildArray());
+        undoer.saveChanges();
+        undoer.undo();
+
+        // Check children are restored in original order
+        assertArrayEquals(new SGView[] { a, b, c }, parent.getChildArray());
+    }
+
+    /**
+     * Tests that repeated simple property changes are still coalesced.
+     */
+    @Test
+    public void testCoalesceSimpleChange()
+    {
+        // Create parent with child and undoer
+        SGParent parent = new SGParent();
+        SGView a = newRect("A");
+        parent.addChildren(Arrays.asList(a), 0);
+        EditorUndoer undoer = newUndoer(a);
+
+        // Set X twice, undo and check
+        a.setX(10);
+        a.setX(20);
+        assertEquals(1, undoer.getActiveUndoSet().getChangeCount());
+        undoer.saveChanges();
+        undoer.undo();
+        assertEquals(36, a.getX(), 0);
+    }
+
+    /**
+     * Returns a new undoer that records changes of given view.
+     */
+    private static EditorUndoer newUndoer(SGView aView)
+    {
+        EditorUndoer undoer = new EditorUndoer();
+        aView.addPropChangeListener(pc -> {
+            if (undoer.isEnabled() && !undoer.isUndoRedoing())
+                undoer.addPropChange(pc);
+        });
+        return undoer;
+    }
+
+    /**
+     * Returns a new named rect.
+     */
+    private static SGRect newRect(String aName)
+    {
+        SGRect rect = new SGRect();
+        rect.setName(aName);
+        rect.setBounds(36, 36, 100, 100);
+        return rect;
+    }
+}
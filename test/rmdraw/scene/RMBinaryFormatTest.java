@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package rmdraw.scene;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import javax.imageio.ImageIO;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for document round trips between XML and binary format (see RMBinaryFormat).
+ */
+public class RMBinaryFormatTest {
+
+    /**
+     * Tests that XML read back from binary format matches original XML (with lazy pages).
+     */
+    @Test
+    public void testRoundTripLazyPages()
+    {
+        assertRoundTrip();
+    }
+
+    /**
+     * Tests that XML read back from binary format matches original XML (with pages unarchived on read).
+     */
+    @Test
+    public void testRoundTripEagerPages()
+    {
+        boolean lazy = SGDoc.LAZY_PAGES;
+        SGDoc.LAZY_PAGES = false;
+        try { assertRoundTrip(); }
+        finally { SGDoc.LAZY_PAGES = lazy; }
+    }
+
+    /**
+     * Tests that binary format is recognized by magic number.
+     */
+    @Test
+    public void testIsBinary()
+    {
+        SGDoc doc = createDoc();
+        assertTrue(RMBinaryFormat.isBinary(doc.getBytesBinary()));
+        assertFalse(RMBinaryFormat.isBinary(doc.getBytes()));
+        assertFalse(RMBinaryFormat.isBinary(new byte[4]));
+    }
+
+    /**
+     * Reads document XML, converts to binary format and back to XML and checks that XML and contents match.
+     */
+    private static void assertRoundTrip()
+    {
+        // Get XML for document read from XML
+        SGDoc doc = SGDoc.getDocFromSource(createDoc().getBytes());
+        String xml = new String(doc.getBytes(), StandardCharsets.UTF_8);
+
+        // Convert to binary, read back and get XML
+        byte[] binary = doc.getBytesBinary();
+        SGDoc doc2 = SGDoc.getDocFromSource(binary);
+        String xml2 = new String(doc2.getBytes(), StandardCharsets.UTF_8);
+
+        // Check XML and contents
+        assertEquals(xml, xml2);
+        assertContents(doc2);
+    }
+
+    /**
+     * Asserts that given document has contents as created in test.
+     */
+    private static void assertContents(SGDoc aDoc)
+    {
+        // Check pages
+        assertEquals(3, aDoc.getPageCount());
+        SGPage page1 = aDoc.getPage(0), page2 = aDoc.getPage(1), page3 = aDoc.getPage(2);
+
+        // Check image resources
+        SGImage image1 = (SGImage) page1.getChildWithName("Image1");
+        SGImage image2 = (SGImage) page3.getChildWithName("Image2");
+        assertNotNull(image1.getImageRef());
+        assertNotNull(image2.getImageRef());
+        assertArrayEquals(createImageBytes(2), image1.getImage().getBytes());
+        assertArrayEquals(createImageBytes(3), image2.getImage().getBytes());
+
+        // Check linked text (from first page to second page)
+        SGText text = (SGText) page1.getChildWithName("Text1");
+        SGLinkedText linkedText = text.getLinkedText();
+        assertNotNull(linkedText);
+        assertSame(page2, linkedText.getParent());
+        assertSame(text, linkedText.getPreviousText());
+    }
+
+    /**
+     * Returns a new document with three pages, with image resources and linked text across pages.
+     */
+    private static SGDoc createDoc()
+    {
+        // Create doc with first page with rect, image and text
+        SGDoc doc = new SGDoc(612, 792);
+        SGPage page1 = doc.getPage(0);
+        page1.addChild(newView(new SGRect(), "Rect1"));
+        page1.addChild(newView(new SGImage(createImageBytes(2)), "Image1"));
+        SGText text = new SGText("Text that flows from the first page into linked text on the second page.");
+        page1.addChild(newView(text, "Text1"));
+
+        // Add second page with linked text for first page text
+        SGPage page2 = new SGPage();
+        doc.addPage(page2);
+        page2.addChild(newView(new SGLinkedText(text), "Linked1"));
+
+        // Add third page with another image
+        SGPage page3 = new SGPage();
+        doc.addPage(page3);
+        page3.addChild(newView(new SGImage(createImageBytes(3)), "Image2"));
+        return doc;
+    }
+
+    /**
+     * Sets given view name and bounds and returns view.
+     */
+    private static SGView newView(SGView aView, String aName)
+    {
+        aView.setName(aName);
+        aView.setBounds(36, 36, 100, 20);
+        return aView;
+    }
+
+    /**
+     * Returns PNG bytes for an image of given size.
+     */
+    private static byte[] createImageBytes(int aSize)
+    {
+        BufferedImage img = new BufferedImage(aSize, aSize, BufferedImage.TYPE_INT_ARGB);
+        img.setRGB(0, 0, 0xFFFF0000);
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        try { ImageIO.write(img, "png", bout); }
+        catch (IOException e) { throw new RuntimeException(e); }
+        return bout.toByteArray();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package rmdraw.scene;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for lazy (archived) pages.
+ */
+public class SGDocLazyPagesTest {
+
+    /**
+     * Tests that layout of a document that isn't showing doesn't inflate pages other than selected page.
+     */
+    @Test
+    public void testLayoutKeepsPagesLazy()
+    {
+        // Load doc with three pages and layout
+        SGDoc doc = loadDoc(SGDoc.PageLayout.Continuous);
+        doc.layoutDeep();
+
+        // Check only selected page is inflated
+        assertFalse(((SGPage) doc.getChild(0)).isLazy());
+        assertTrue(((SGPage) doc.getChild(1)).isLazy());
+        assertTrue(((SGPage) doc.getChild(2)).isLazy());
+    }
+
+    /**
+     * Tests that lookup by name inflates only the lazy page with archived view of that name.
+     */
+    @Test
+    public void testLookupInflatesPageWithName()
+    {
+        // Load doc with three pages and look up view on last page
+        SGDoc doc = loadDoc(SGDoc.PageLayout.Single);
+        assertEquals(1, doc.getViewsWithName("Rect3").size());
+
+        // Check only last page (and selected page) is inflated
+        assertTrue(((SGPage) doc.getChild(1)).isLazy());
+        assertFalse(((SGPage) doc.getChild(2)).isLazy());
+
+        // Check lookup of name not in doc inflates nothing
+        assertEquals(0, doc.getViewsWithName("Missing").size());
+        assertTrue(((SGPage) doc.getChild(1)).isLazy());
+    }
+
+    /**
+     * Returns a document with three pages (each with a named rect) saved and reloaded with lazy pages.
+     */
+    private static SGDoc loadDoc(SGDoc.PageLayout aLayout)
+    {
+        SGDoc doc = new SGDoc(612, 792);
+        doc.setPageLayout(aLayout);
+        doc.getPage(0).addChild(newRect("Rect1"));
+        doc.addPage().addChild(newRect("Rect2"));
+        doc.addPage().addChild(newRect("Rect3"));
+        doc.setSelPageIndex(0);
+        return SGDoc.getDocFromSource(doc.getBytes());
+    }
+
+    /**
+     * Returns a new named rect.
+     */
+    private static SGRect newRect(String aName)
+    {
+        SGRect rect = new SGRect();
+        rect.setName(aName);
+        rect.setBounds(36, 36, 100, 100);
+        return rect;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package rmdraw.scene;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for document snapshots (used by background save).
+ */
+public class SGDocSnapshotTest {
+
+    /**
+     * Tests that a page with two layers keeps layer names, visibility and membership through snapshot, save and reload.
+     */
+    @Test
+    public void testSaveReloadSnapshotWithLayers()
+    {
+        // Create doc with page with two children in first layer and one child in second (hidden) layer
+        SGDoc doc = new SGDoc(612, 792);
+        SGPage page = doc.getPage(0);
+        page.addChild(newRect("Rect1"));
+        page.addChild(newRect("Rect2"));
+        page.addLayerNamed("Layer 2");
+        page.addChild(newRect("Rect3"));
+        page.getLayer(1).setVisible(false);
+
+        // Check snapshot page layers
+        SGPage snapPage = doc.getSnapshot().getPage(0);
+        assertLayers(snapPage);
+
+        // Save snapshot, reload and check page layers
+        byte[] bytes = doc.getSnapshot().getBytes();
+        SGPage page2 = SGDoc.getDocFromSource(bytes).getPage(0);
+        assertLayers(page2);
+    }
+
+    /**
+     * Tests that snapshot shares archived pages from last save for unchanged pages and clones changed pages.
+     */
+    @Test
+    public void testSnapshotSharesSavedPages()
+    {
+        // Create doc with two pages (and deep listener, so page changes are counted)
+        SGDoc doc = new SGDoc(612, 792);
+        doc.getPage(0).addChild(newRect("Rect1"));
+        doc.addPage().addChild(newRect("Rect2"));
+        doc.addDeepChangeListener((lsnr, pc) -> { });
+
+        // Take snapshot, "save" it and check first snapshot clones pages
+        SGDoc snap1 = doc.getSnapshot();
+        assertFalse(((SGPage) snap1.getChild(0)).isLazy());
+        snap1.dehydrateSnapshotPages();
+        doc.snapshotSaved(snap1);
+
+        // Change second page and check second snapshot shares first page and clones second page
+        doc.getPage(1).getChild(0).setX(72);
+        SGDoc snap2 = doc.getSnapshot();
+        assertTrue(((SGPage) snap2.getChild(0)).isLazy());
+        assertFalse(((SGPage) snap2.getChild(1)).isLazy());
+
+        // Check snapshot archives same as document
+        assertEquals(new String(doc.getBytes()), new String(snap2.getBytes()));
+    }
+
+    /**
+     * Asserts that given page has layers as created in test.
+     */
+    private static void assertLayers(SGPage aPage)
+    {
+        assertEquals(2, aPage.getLayerCount());
+        assertEquals(3, aPage.getChildCount());
+
+        SGPageLayer layer1 = aPage.getLayer(0), layer2 = aPage.getLayer(1);
+        assertEquals("Layer 1", layer1.getName());
+        assertEquals("Layer 2", layer2.getName());
+        assertTrue(layer1.isVisible());
+        assertFalse(layer2.isVisible());
+
+        assertEquals(2, layer1.getChildCount());
+        assertEquals(1, layer2.getChildCount());
+        assertEquals("Rect3", layer2.getChild(0).getName());
+        assertSame(layer2, aPage.getChildLayer(aPage.getChild(2)));
+    }
+
+    /**
+     * Returns a new named rect.
+     */
+    private static SGRect newRect(String aName)
+    {
+        SGRect rect = new SGRect();
+        rect.setName(aName);
+        rect.setBounds(36, 36, 100, 100);
+        return rect;
+    }
+}
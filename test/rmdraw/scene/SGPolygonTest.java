@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2010, ReportMill Software. All rights reserved.
+ */
+package rmdraw.scene;
+import org.junit.Test;
+import snap.geom.Path2D;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for SGPolygon compact path strings.
+ */
+public class SGPolygonTest {
+
+    /**
+     * Tests that path strings round trip through parser.
+     */
+    @Test
+    public void testRoundTrip()
+    {
+        assertRoundTrip("M0 0L100 0Q150 50 100 100C80 120 20 120 0 100");
+        assertRoundTrip("M-1.5 2.25L0.1 -0.001");
+        assertRoundTrip("M1.0E20 -3.5E-7");
+    }
+
+    /**
+     * Tests numbers with exponents.
+     */
+    @Test
+    public void testExponents()
+    {
+        assertParsed("M1e2 2.5E-1L-1.5e+1 0e0", "M100 0.25L-15 0");
+    }
+
+    /**
+     * Tests numbers with explicit signs.
+     */
+    @Test
+    public void testSigns()
+    {
+        assertParsed("M+3 -4L-0.5 +.5", "M3 -4L-0.5 0.5");
+    }
+
+    /**
+     * Tests omitted command letters (repeat last command, or line after move) and comma separators.
+     */
+    @Test
+    public void testOmittedCommands()
+    {
+        assertParsed("M0,0 10,0 10,10L0 10 5 5", "M0 0L10 0L10 10L0 10L5 5");
+    }
+
+    /**
+     * Tests that non-finite coords are written and parsed.
+     */
+    @Test
+    public void testNonFinite()
+    {
+        Path2D path = new Path2D();
+        path.moveTo(Double.NaN, Double.POSITIVE_INFINITY);
+        path.lineTo(Double.NEGATIVE_INFINITY, 1);
+        String str = SGPolygon.getPathString(path);
+        assertEquals("MNaN InfinityL-Infinity 1", str);
+        assertRoundTrip(str);
+    }
+
+    /**
+     * Tests that invalid path strings are rejected.
+     */
+    @Test
+    public void testInvalid()
+    {
+        assertInvalid("0 0");
+        assertInvalid("M0");
+        assertInvalid("M0 x");
+        assertInvalid("M- 0");
+        assertInvalid("M1e 0");
+    }
+
+    /**
+     * Asserts that given path string parses and writes back to same string.
+     */
+    private static void assertRoundTrip(String aStr)
+    {
+        assertParsed(aStr, aStr);
+    }
+
+    /**
+     * Asserts that given path string parses and writes as given string.
+     */
+    private static void assertParsed(String aStr, String aResult)
+    {
+        assertEquals(aResult, SGPolygon.getPathString(SGPolygon.getPathFromString(aStr)));
+    }
+
+    /**
+     * Asserts that given path string is rejected.
+     */
+    private static void assertInvalid(String aStr)
+    {
+        try {
+            SGPolygon.getPathFromString(aStr);
+            fail("Expected invalid path string: " + aStr);
+        }
+        catch (IllegalArgumentException e) { }
+    }
+}